@@ -1,5 +1,6 @@
 package addOns;
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 
 import representation.Customer;
@@ -31,37 +32,14 @@ public class DisplayVRP {
 		try {
 			this.vrpInstance = vrpInstance;
 			this.vrp = new VRP(vrpInstance,numCust);
-			vehicles = new ArrayList<int[]>();
-
 			this.xDepot = vrp.getDepot().getxCoord();
 			this.yDepot = vrp.getDepot().getyCoord();
 
-			//create reader to take in the solution
-			FileReader reader;
-			Scanner sc;
-			reader = new FileReader(sol);
-			sc = new Scanner(reader);
-
-			//read number of customers and needed vehicles, then move to the next line
-			numCust = sc.nextInt();
-			numVehicles = sc.nextInt();
-			sc.nextLine();
-
-			//extract the routes from the file
-			int vCount = 0;
-			while(sc.hasNextLine() && vCount < numVehicles) {
-				String[] vArray = sc.nextLine().split("[ ]+");
-				int[] customers = new int[vArray.length-1];
-				for (int i = 0; i < vArray.length-1; i++) {
-					customers[i] = Integer.parseInt(vArray[i]);
-				}
-				vehicles.add(customers);
-				vCount++;
-			}
-			//retrieve the cost
-			String[] tmp = sc.nextLine().split(" ");
-			costSol = Double.parseDouble(tmp[2]);
-
+			//take in the solution
+			SolutionReader reader = new SolutionReader(sol);
+			numVehicles = reader.getNeededVehicles();
+			vehicles = reader.getVehicles();
+			costSol = reader.getCost();
 
 			//Get the size of the map
 			xMax = vrp.getCustomer()[0].getxCoord();
@@ -88,10 +66,7 @@ public class DisplayVRP {
 			//Add buffer in the lower dimension to accommodate text
 			yMin -= 5;
 
-			reader.close();
-			sc.close();
-
-		} catch(FileNotFoundException fnfe) {
+		} catch(NoSuchFileException nsfe) {
 			System.err.println("File not found");
 		} catch(IOException ioe) {
 			System.err.println("Could not read file");
@@ -0,0 +1,228 @@
+package addOns;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import representation.Customer;
+import representation.DistanceStore;
+import representation.InstanceSource;
+
+/**
+ * Seeded generator for synthetic instances in the style of the Solomon classes R (random), C (clustered)
+ * and RC (half random, half clustered). The same seed and parameters always give the same instance.
+ * The area grows with the number of customers, so that the density stays the one of the 100 customer benchmarks.
+ * A generated instance can be written as Solomon text file or be used directly as source of a VRP.
+ * @author Tom Decke
+ *
+ */
+public class InstanceGenerator implements InstanceSource {
+
+	/**
+	 * The classes of generated instances
+	 */
+	public enum Type {
+		R, C, RC
+	}
+
+	/**side length of the area for 100 customers*/
+	private static final int BASE_SIDE = 100;
+	/**the largest demand of a customer*/
+	private static final int MAX_DEMAND = 30;
+	/**number of customers per cluster*/
+	private static final int CLUSTER_SIZE = 10;
+
+	private final String name;
+	private final int numCustomers, numVehicles, capacity;
+	private final int[][] columns;
+
+	/**
+	 * Constructor to generate an instance with medium time windows and capacity 200
+	 * @param type Type, the class of the instance
+	 * @param numCustomers int, the number of customers (without the depot)
+	 * @param seed long, the seed of the random numbers
+	 */
+	public InstanceGenerator(Type type, int numCustomers, long seed) {
+		this(type, numCustomers, seed, 0.25, 200);
+	}
+
+	/**
+	 * Constructor to generate an instance
+	 * @param type Type, the class of the instance
+	 * @param numCustomers int, the number of customers (without the depot)
+	 * @param seed long, the seed of the random numbers
+	 * @param tightness double, width of the time windows as fraction of the scheduling horizon (1 for no time windows)
+	 * @param capacity int, the capacity of the vehicles
+	 */
+	public InstanceGenerator(Type type, int numCustomers, long seed, double tightness, int capacity) {
+		if(numCustomers < 1 || tightness <= 0 || tightness > 1 || capacity < MAX_DEMAND) {
+			throw new IllegalArgumentException("Invalid parameters: " + numCustomers + " customers, tightness " + tightness + ", capacity " + capacity);
+		}
+		this.name = type + "_" + numCustomers + "_" + seed;
+		this.numCustomers = numCustomers;
+		this.numVehicles = Math.max(1, numCustomers / 4);
+		this.capacity = capacity;
+		this.columns = new int[COLUMNS][numCustomers + 1];
+
+		Random random = new Random(seed);
+		int side = (int) Math.round(BASE_SIDE * Math.sqrt(numCustomers / 100.0));
+		int service = type == Type.C ? 90 : 10;
+
+		//place the depot in the centre and the customers in the area
+		columns[X_COORD][0] = side / 2;
+		columns[Y_COORD][0] = side / 2;
+		int clustered = type == Type.R ? 0 : type == Type.C ? numCustomers : numCustomers / 2;
+		placeClustered(random, side, 1, clustered);
+		for(int i = clustered + 1; i <= numCustomers; i++) {
+			columns[X_COORD][i] = random.nextInt(side + 1);
+			columns[Y_COORD][i] = random.nextInt(side + 1);
+		}
+
+		//the horizon allows every customer to be served by its own vehicle
+		int horizon = 3 * side + 10 * service;
+		int width = (int) Math.max(1, Math.round(tightness * horizon));
+		columns[DUE_DATE][0] = horizon;
+		for(int i = 1; i <= numCustomers; i++) {
+			columns[CUST_NO][i] = i;
+			columns[DEMAND][i] = 1 + random.nextInt(MAX_DEMAND);
+			columns[SERVICE_TIME][i] = service;
+
+			//the window lies between the earliest arrival and the latest start that still reaches the depot in time
+			int travel = (int) Math.ceil(DistanceStore.euclidean(columns[X_COORD], columns[Y_COORD], 0, i));
+			int earliest = travel;
+			int latest = horizon - service - travel;
+			int centre = earliest + random.nextInt(latest - earliest + 1);
+			columns[READY_TIME][i] = Math.max(0, centre - width / 2);
+			columns[DUE_DATE][i] = Math.max(earliest, Math.min(latest, centre + (width + 1) / 2));
+		}
+	}
+
+	/**
+	 * Place customers in clusters around random centres
+	 * @param random Random, the random numbers
+	 * @param side int, the side length of the area
+	 * @param first int, the first customer to place
+	 * @param count int, the number of customers to place
+	 */
+	private void placeClustered(Random random, int side, int first, int count) {
+		if(count == 0) {
+			return;
+		}
+		int clusters = Math.max(1, count / CLUSTER_SIZE);
+		int[] cx = new int[clusters];
+		int[] cy = new int[clusters];
+		for(int k = 0; k < clusters; k++) {
+			cx[k] = random.nextInt(side + 1);
+			cy[k] = random.nextInt(side + 1);
+		}
+		//the spread of a cluster is a fraction of the area that belongs to it
+		double spread = side / (4 * Math.sqrt(clusters));
+		for(int i = first; i < first + count; i++) {
+			int k = random.nextInt(clusters);
+			columns[X_COORD][i] = clamp((int) Math.round(cx[k] + random.nextGaussian() * spread), side);
+			columns[Y_COORD][i] = clamp((int) Math.round(cy[k] + random.nextGaussian() * spread), side);
+		}
+	}
+
+	private static int clamp(int value, int side) {
+		return Math.max(0, Math.min(side, value));
+	}
+
+	/**
+	 * Write the instance in the layout of the Solomon benchmark
+	 * @param fname String, name of the file to write
+	 * @throws IOException
+	 */
+	public void write(String fname) throws IOException {
+		try(BufferedWriter writer = new BufferedWriter(new FileWriter(fname))){
+			writer.write(name + "\n\nVEHICLE\nNUMBER     CAPACITY\n");
+			writer.write(String.format("%5d %11d%n%n", numVehicles, capacity));
+			writer.write("CUSTOMER\nCUST NO.  XCOORD.   YCOORD.    DEMAND   READY TIME  DUE DATE   SERVICE   TIME\n \n");
+			for(int i = 0; i <= numCustomers; i++) {
+				writer.write(String.format("%5d %8d %10d %10d %10d %10d %10d   %n", columns[CUST_NO][i], columns[X_COORD][i], columns[Y_COORD][i],
+						columns[DEMAND][i], columns[READY_TIME][i], columns[DUE_DATE][i], columns[SERVICE_TIME][i]));
+			}
+		}
+	}
+
+	/**
+	 * Create the customer at the given position of the instance
+	 * @param i int, the position, where position 0 is the depot
+	 * @return Customer, a new customer with the generated data
+	 */
+	public Customer createCustomer(int i) {
+		return new Customer(columns[CUST_NO][i], columns[X_COORD][i], columns[Y_COORD][i], columns[DEMAND][i],
+				columns[READY_TIME][i], columns[DUE_DATE][i], columns[SERVICE_TIME][i]);
+	}
+
+	/**
+	 * Accessor for a column of the customer data
+	 * @param column int, index of the column (0 = customer number, ..., 6 = service time)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Accessor for the name of the instance, which consists of type, size and seed
+	 * @return String, the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getNumVehicles() {
+		return numVehicles;
+	}
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Accessor for the number of customers (without the depot)
+	 * @return int, the number of customers
+	 */
+	public int getNumCustomers() {
+		return numCustomers;
+	}
+
+	/**
+	 * Generated instances do not contain distances
+	 * @return DistanceStore, always null
+	 */
+	public DistanceStore getDistances() {
+		return null;
+	}
+
+	/**
+	 * The distances of generated instances are euclidean
+	 * @return boolean, always false
+	 */
+	public boolean hasExplicitDistances() {
+		return false;
+	}
+
+	/**
+	 * Main method to write generated instances
+	 * @param args String[], type (R, C or RC), number of customers, seed, file name and optionally tightness and capacity
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		Type type = Type.valueOf(args[0].toUpperCase());
+		int n = Integer.parseInt(args[1]);
+		long seed = Long.parseLong(args[2]);
+		double tightness = args.length > 4 ? Double.parseDouble(args[4]) : 0.25;
+		int capacity = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+		new InstanceGenerator(type, n, seed, tightness, capacity).write(args[3]);
+	}
+}
@@ -1,9 +1,9 @@
 package addOns;
 import java.io.*;
-import java.util.ArrayList;
 
-import representation.Customer;
-import representation.Vehicle;
+import representation.InstanceSource;
+import representation.SolutionSnapshot;
+import representation.VRP;
 
 /**
  * Class to keep track of the best solution when using random operations
@@ -15,21 +15,32 @@ public class RandomSolution {
 	private double cost;
 	private int neededV;
 	private int availableV;
-	private ArrayList<Vehicle> soln;
+	private SolutionSnapshot soln;
 
 	/**
 	 * Constructor for the solution
 	 * @param cost double, the cost of the solution
 	 * @param needed int, the number of proposed vehicles
 	 * @param available int, the number of available vehicles
-	 * @param v ArrayList<Vehicle>, the vehicles for the solution
+	 * @param vrp VRP, the solution, of which a snapshot is taken
 	 */
-	public RandomSolution(double cost, int needed, int available, ArrayList<Vehicle> v) {
+	public RandomSolution(double cost, int needed, int available, VRP vrp) {
 		this.cost = cost;
-		this.availableV = available;
 		this.neededV = needed;
 		this.availableV = available;
-		this.soln = v;
+		this.soln = new SolutionSnapshot(vrp);
+	}
+
+	/**
+	 * Replace the solution by a better one, reusing the arrays of the snapshot
+	 * @param cost double, the cost of the new solution
+	 * @param needed int, the number of proposed vehicles
+	 * @param vrp VRP, the new solution
+	 */
+	public void update(double cost, int needed, VRP vrp) {
+		this.cost = cost;
+		this.neededV = needed;
+		soln.capture(vrp);
 	}
 
 	/**
@@ -50,9 +61,9 @@ public class RandomSolution {
 
 	/**
 	 * Accessor for the solution
-	 * @return ArrayList<Vehicle>, the vehicles of the solution
+	 * @return SolutionSnapshot, the snapshot of the solution, which can be restored into a VRP
 	 */
-	public ArrayList<Vehicle> getSoln() {
+	public SolutionSnapshot getSoln() {
 		return soln;
 	}
 
@@ -70,12 +81,15 @@ public class RandomSolution {
 			writer.write(""+availableV +" "+neededV+"\n");
 
 			//write the customers of each vehicle as a route
-			for(Vehicle v : soln) {
+			int[] custNo = soln.getInstance().getColumn(InstanceSource.CUST_NO);
+			for(int i = 0; i < soln.getNumVehicles(); i++) {
+				int[] route = soln.getRoute(i);
+				if(route.length == 0) {
+					continue;
+				}
 				StringBuilder sBuild = new StringBuilder();
-				Customer customer = v.getFirstCustomer().getSucc();
-				while (!customer.equals(v.getLastCustomer())){
-					sBuild.append(customer.getCustNo() + " ");
-					customer = customer.getSucc();
+				for(int c : route) {
+					sBuild.append(custNo[c] + " ");
 				}
 				sBuild.append(String.format(" -1%n"));
 				//write the tour of the vehicle
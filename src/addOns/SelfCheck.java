@@ -0,0 +1,520 @@
+package addOns;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import executable.RunDescents;
+import moves.Option;
+import operators.Operation;
+import representation.Customer;
+import representation.ProblemInstance;
+import representation.Segment;
+import representation.SolutionSnapshot;
+import representation.VRP;
+import representation.Vehicle;
+import solver.SteepestDescent;
+
+/**
+ * Self-check of the solver, which runs steepest descent with every combination of operators on generated instances
+ * and verifies the solution after every executed move.
+ * Unlike TestSolution it accepts virtual vehicles, so it can check the intermediate solutions of the descent.
+ * @author Tom Decke
+ *
+ */
+public class SelfCheck {
+	private static final double DERIVATION = 1E-10;
+	private static final int MODES = 12;
+	//the descents are run with all moves and with granular neighbourhoods of this many candidates per customer
+	private static final int[] GRANULARITIES = {0, 8};
+	//number of replacements per vehicle whose segment check is compared with a simulation
+	private static final int SAMPLES = 3;
+	//schedules closer than this to a due date are not compared, as rounding may decide them either way
+	private static final double MARGIN = 1E-6;
+	//options whose deltas differ by less than this are ties of the operators, which the order of the vehicles may settle differently
+	private static final double TIE = 1E-8;
+
+	private final VRP vrp;
+	private final ArrayList<String> failures = new ArrayList<String>();
+	private Vehicle[] lastFleet; // the fleet at the last check
+	private long[] lastHash, lastVersion; // hash and version of the vehicles of lastFleet
+	private final VRP reference; // copy of the solution whose tours are rebuilt from scratch
+	private final SolutionSnapshot snapshot;
+	private final Random random = new Random(1);
+	private final Segment segment = new Segment();
+
+	/**
+	 * Constructor for the check of a solution
+	 * @param vrp VRP, the solution to check
+	 */
+	public SelfCheck(VRP vrp) {
+		this.vrp = vrp;
+		reference = new VRP(vrp.getInstance());
+		snapshot = new SolutionSnapshot(vrp);
+	}
+
+	/**
+	 * Run steepest descent with the operators of a mode and check the solution after every move
+	 * @param mode int, the combination of operators (see RunDescents.getMoves)
+	 * @param granularity int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @return int, the number of executed moves
+	 * @throws IOException
+	 */
+	public int runDescent(int mode, int granularity) throws IOException {
+		SteepestDescent desc = new SteepestDescent(vrp, null);
+		ArrayList<Operation> ops = RunDescents.getMoves(vrp, vrp.getN(), mode, granularity);
+		for(Operation op : ops) {
+			op.createOptionMatrix();
+		}
+		checkSolution("start");
+		int moves = 0;
+		Option execute = fetchBest(ops);
+		while(execute.getDelta() < 0 && failures.isEmpty()) {
+			Vehicle v1 = execute.getV1();
+			Vehicle v2 = execute.getV2();
+			execute.getOperation().executeOption(execute);
+			moves++;
+
+			//adapt the fleet and the matrices as the descent does
+			desc.updateFleet(ops, v1, v2);
+			if(v1.getIndex() < 0) {
+				v1 = v2;
+			}
+			if(v2.getIndex() < 0) {
+				v2 = v1;
+			}
+			if(v1.getIndex() >= 0) {
+				for(Operation op : ops) {
+					op.updateOptionMatrix(v1, v2);
+				}
+			}
+			checkSolution("move " + moves);
+			checkOptions("move " + moves, ops, mode, granularity);
+			execute = fetchBest(ops);
+		}
+		return moves;
+	}
+
+	/**
+	 * Check that the incrementally updated option matrices offer the same best options as matrices created from scratch,
+	 * which shows that no outdated option was kept
+	 * @param step String, the step of the descent, for the report
+	 * @param ops ArrayList<Operation>, the operators of the descent
+	 * @param mode int, the combination of operators
+	 * @param granularity int, the number of candidates per customer, or 0 to evaluate all moves
+	 */
+	private void checkOptions(String step, ArrayList<Operation> ops, int mode, int granularity) {
+		ArrayList<Operation> fresh = RunDescents.getMoves(vrp, vrp.getN(), mode, granularity);
+		for(int k = 0; k < ops.size(); k++) {
+			fresh.get(k).createOptionMatrix();
+			Option kept = ops.get(k).fetchBestOption();
+			Option created = fresh.get(k).fetchBestOption();
+			double tolerance = isSwapped(kept, created) ? TIE : 0;
+			if(Math.abs(kept.getDelta() - created.getDelta()) > tolerance || !isSameMove(kept, created)) {
+				fail(step, "best option of " + ops.get(k).getClass().getSimpleName() + " differs from the one of a new matrix");
+			}
+		}
+	}
+
+	/**
+	 * Get the best option of all operators, the first operator wins ties as in the descent
+	 * @param ops ArrayList<Operation>, the operators
+	 * @return Option, the best option
+	 */
+	private static Option fetchBest(ArrayList<Operation> ops) {
+		Option best = ops.get(0).fetchBestOption();
+		for(Operation op : ops) {
+			Option tmp = op.fetchBestOption();
+			if(tmp.getDelta() < best.getDelta()) {
+				best = tmp;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Check if two options with the same delta, or tied deltas, describe the same move. The options of a pair of vehicles may have been
+	 * determined in either order, as the vehicles change their places in the fleet, and the order may settle ties
+	 * between moves differently, so only the vehicles are compared then.
+	 * @param o1 Option, the first option
+	 * @param o2 Option, the second option
+	 * @return boolean, true if the options involve the same vehicles and, in the same order, the same customers
+	 */
+	private static boolean isSameMove(Option o1, Option o2) {
+		if(o1.getV1() == o2.getV1() && o1.getV2() == o2.getV2()) {
+			return o1.getC1() == o2.getC1() && o1.getC2() == o2.getC2();
+		}
+		return isSwapped(o1, o2);
+	}
+
+	/**
+	 * Check if two options involve the same two vehicles in the opposite order
+	 * @param o1 Option, the first option
+	 * @param o2 Option, the second option
+	 * @return boolean, true if the first vehicle of each option is the second one of the other
+	 */
+	private static boolean isSwapped(Option o1, Option o2) {
+		return o1.getV1() != o1.getV2() && o1.getV1() == o2.getV2() && o1.getV2() == o2.getV1();
+	}
+
+	/**
+	 * Check the current solution
+	 * @param step String, the step of the descent, for the report
+	 */
+	public void checkSolution(String step) {
+		checkTours(step);
+		checkFleet(step);
+		checkRoutes(step);
+		checkSegments(step);
+		checkStartTimes(step);
+		checkHashes(step);
+		rememberFleet();
+	}
+
+	/**
+	 * Check that every customer is visited exactly once and that the tours keep the capacity and the time windows
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkTours(String step) {
+		ProblemInstance instance = vrp.getInstance();
+		int[] demand = instance.getDemands();
+		int[] ready = instance.getReadyTimes();
+		int[] due = instance.getDueDates();
+		int[] service = instance.getServiceTimes();
+		int[] visits = new int[vrp.getN() + 1];
+
+		for(Vehicle v : vrp.getVehicle()) {
+			int load = 0;
+			double dist = 0;
+			Customer cPred = v.getFirstCustomer();
+			double start = cPred.getReadyTime();
+			Customer cCur = cPred.getSucc();
+			while(cPred != v.getLastCustomer()) {
+				if(cCur == null || cCur.getPred() != cPred || cCur.getVehicle() != v) {
+					fail(step, "broken tour of vehicle " + v.getId());
+					return;
+				}
+				visits[cCur.getIndex()]++;
+				if(cCur != v.getLastCustomer()) {
+					load += demand[cCur.getIndex()];
+				}
+				dist += vrp.distance(cPred, cCur);
+				start = Math.max(ready[cCur.getSlot()], start + service[cPred.getSlot()] + vrp.distance(cPred, cCur));
+				if(start > due[cCur.getSlot()] + DERIVATION) {
+					fail(step, "time window of customer " + cCur.getCustNo() + " in vehicle " + v.getId());
+				}
+				cPred = cCur;
+				cCur = cCur.getSucc();
+			}
+			if(load != v.getLoad() || load > v.getCapacity()) {
+				fail(step, "load " + v.getLoad() + " of vehicle " + v.getId() + " instead of " + load);
+			}
+			if(Math.abs(dist - v.getDistance()) > DERIVATION * Math.max(1, dist)) {
+				fail(step, "distance " + v.getDistance() + " of vehicle " + v.getId() + " instead of " + dist);
+			}
+			//the cost is the distance times the cost of use
+			if(Math.abs(dist * v.getCostOfUse() - v.getCost()) > DERIVATION * Math.max(1, v.getCost())) {
+				fail(step, "cost " + v.getCost() + " of vehicle " + v.getId() + " instead of " + dist * v.getCostOfUse());
+			}
+		}
+
+		//the depot is left out, as it is the end of every tour
+		for(int c = 1; c < visits.length; c++) {
+			if(visits[c] != 1) {
+				fail(step, "customer " + vrp.getCustomer()[c].getCustNo() + " visited " + visits[c] + " times");
+			}
+		}
+	}
+
+	/**
+	 * Check that the fleet is compact, i.e. that it holds the real vehicles, the virtual vehicles serving customers
+	 * and exactly one empty virtual spare, and that vehicles which left the fleet were recycled
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkFleet(String step) {
+		Vehicle[] fleet = vrp.getVehicle();
+		HashSet<Integer> ids = new HashSet<Integer>();
+		int real = 0;
+		int spares = 0;
+		Vehicle spare = null;
+		for(int i = 0; i < fleet.length; i++) {
+			Vehicle v = fleet[i];
+			if(v.getIndex() != i) {
+				fail(step, "vehicle " + v.getId() + " at " + i + " has index " + v.getIndex());
+			}
+			if(!ids.add(v.getId())) {
+				fail(step, "vehicle id " + v.getId() + " is used twice");
+			}
+			if(!v.isVirtual()) {
+				real++;
+			}
+			else if(v.isEmpty()) {
+				spares++;
+				spare = v;
+			}
+		}
+		if(real != vrp.getM()) {
+			fail(step, real + " real vehicles instead of " + vrp.getM());
+		}
+		if(spares != 1) {
+			fail(step, spares + " empty virtual vehicles instead of one spare");
+		}
+
+		//a vehicle that left the fleet is reset, so its tour is the empty one of the spare
+		if(lastFleet != null && spare != null) {
+			for(Vehicle v : lastFleet) {
+				if(v.getIndex() >= 0 && v.getIndex() < fleet.length && fleet[v.getIndex()] == v) {
+					continue;
+				}
+				if(v.getIndex() != -1 || !v.isEmpty() || v.getLoad() != 0 || v.getDistance() != 0 || v.getCost() != 0
+						|| v.getHash() != spare.getHash()) {
+					fail(step, "vehicle " + v.getId() + " left the fleet without being recycled");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check that the route array, the positions and the cumulative load and distance of every vehicle agree with its linked customers
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkRoutes(String step) {
+		int[] position = vrp.getPositions();
+		for(Vehicle v : vrp.getVehicle()) {
+			int[] route = v.getRoute();
+			int end = v.getRouteLength() + 1;
+			if(route[0] != 0 || route[end] != 0) {
+				fail(step, "route of vehicle " + v.getId() + " does not start and end at the depot");
+				continue;
+			}
+			int load = 0;
+			double dist = 0;
+			int p = 0;
+			for(Customer c = v.getFirstCustomer(); c != v.getLastCustomer(); c = c.getSucc()) {
+				p++;
+				Customer cSucc = c.getSucc();
+				if(p > end || route[p] != cSucc.getIndex() || v.getCustomerAt(p) != cSucc || v.getPosition(cSucc) != p
+						|| (p < end && (position[cSucc.getIndex()] != p || !v.contains(cSucc)))) {
+					fail(step, "route of vehicle " + v.getId() + " differs from its tour at position " + p);
+					break;
+				}
+				load += cSucc.getDemand();
+				dist += vrp.distance(route[p - 1], route[p]);
+				if(v.getLoadUpTo(p) != load || Math.abs(v.getDistanceUpTo(p) - dist) > DERIVATION * Math.max(1, dist)) {
+					fail(step, "cumulative load or distance of vehicle " + v.getId() + " is wrong at position " + p);
+					break;
+				}
+			}
+			if(p != end) {
+				fail(step, "route of vehicle " + v.getId() + " has length " + v.getRouteLength() + " instead of " + (p - 1));
+			}
+		}
+	}
+
+	/**
+	 * Check the segments of every vehicle: joining a prefix with the following suffix gives the whole tour,
+	 * and replacing a part of the tour by a customer is feasible exactly if a simulation of the new tour meets all time windows
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkSegments(String step) {
+		Customer[] customers = vrp.getCustomer();
+		for(Vehicle v : vrp.getVehicle()) {
+			int[] route = v.getRoute();
+			int end = v.getRouteLength() + 1;
+			Segment tour = v.getPrefix(end);
+			if(!tour.isFeasible() || Math.abs(v.getSuffix(0).getDuration() - tour.getDuration()) > MARGIN) {
+				fail(step, "segments of vehicle " + v.getId() + " do not describe its feasible tour");
+				continue;
+			}
+			for(int p = 0; p < end; p++) {
+				segment.concat(v.getPrefix(p), vrp.distance(route[p], route[p + 1]), v.getSuffix(p + 1));
+				if(!segment.isFeasible() || Math.abs(segment.getDuration() - tour.getDuration()) > MARGIN) {
+					fail(step, "prefix and suffix of vehicle " + v.getId() + " do not join at position " + p);
+					break;
+				}
+			}
+
+			//replace the customers between two random positions by a customer that is not between them
+			for(int k = 0; k < SAMPLES; k++) {
+				int from = random.nextInt(end);
+				int to = from + 1 + random.nextInt(end - from);
+				Customer c = customers[1 + random.nextInt(vrp.getN())];
+				int pos = c.getVehicle() == v ? v.getPosition(c) : -1;
+				if(pos > from && pos < to) {
+					continue;
+				}
+				double slack = simulateReplacement(v, from, to, c);
+				if(Math.abs(slack) > MARGIN && v.canReplace(from, to, c, segment) != slack > 0) {
+					fail(step, "segments of vehicle " + v.getId() + " misjudge customer " + c.getCustNo() + " between " + from + " and " + to);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Simulate the tour of a vehicle after the customers between two positions were replaced by a customer
+	 * @param v Vehicle, the vehicle
+	 * @param from int, position of the customer that is visited before c
+	 * @param to int, position of the customer that is visited after c
+	 * @param c Customer, the customer to insert
+	 * @return double, the smallest difference between a due date and the start of service, negative if a time window is missed
+	 */
+	private double simulateReplacement(Vehicle v, int from, int to, Customer c) {
+		ProblemInstance instance = vrp.getInstance();
+		int[] ready = instance.getReadyTimes();
+		int[] due = instance.getDueDates();
+		int[] service = instance.getServiceTimes();
+		int end = v.getRouteLength() + 1;
+		Customer cPred = v.getFirstCustomer();
+		double start = cPred.getReadyTime();
+		double slack = cPred.getDueDate() - start;
+		for(int p = 1; p <= end - to + from + 2; p++) {
+			//the new tour visits the positions up to from, then c, then the positions from to onwards
+			Customer cCur = p <= from ? v.getCustomerAt(p) : p == from + 1 ? c : v.getCustomerAt(p - from - 1 + to - 1);
+			start = Math.max(ready[cCur.getSlot()], start + service[cPred.getSlot()] + vrp.distance(cPred, cCur));
+			slack = Math.min(slack, due[cCur.getSlot()] - start);
+			cPred = cCur;
+		}
+		return slack;
+	}
+
+	/**
+	 * Check that the earliest and latest starts of all customers are the ones a full propagation along the tours gives,
+	 * which shows that the propagations stopping at the first unchanged customer did not leave outdated values behind
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkStartTimes(String step) {
+		ProblemInstance instance = vrp.getInstance();
+		int[] ready = instance.getReadyTimes();
+		int[] due = instance.getDueDates();
+		int[] service = instance.getServiceTimes();
+		for(Vehicle v : vrp.getVehicle()) {
+			//propagate right from the first depot customer
+			double earliest = v.getFirstCustomer().getEarliestStart();
+			for(Customer c = v.getFirstCustomer(); c != v.getLastCustomer(); c = c.getSucc()) {
+				Customer cSucc = c.getSucc();
+				earliest = Math.max(ready[cSucc.getSlot()], earliest + service[c.getSlot()] + vrp.distance(c, cSucc));
+				if(Math.abs(earliest - cSucc.getEarliestStart()) > DERIVATION * Math.max(1, earliest)) {
+					fail(step, "earliest start " + cSucc.getEarliestStart() + " of customer " + cSucc.getCustNo() + " in vehicle " + v.getId() + " instead of " + earliest);
+					break;
+				}
+			}
+			//propagate left from the last depot customer
+			double latest = v.getLastCustomer().getLatestStart();
+			for(Customer c = v.getLastCustomer(); c != v.getFirstCustomer(); c = c.getPred()) {
+				Customer cPred = c.getPred();
+				latest = Math.min(due[cPred.getSlot()], latest - (service[cPred.getSlot()] + vrp.distance(cPred, c)));
+				if(Math.abs(latest - cPred.getLatestStart()) > DERIVATION * Math.max(1, Math.abs(latest))) {
+					fail(step, "latest start " + cPred.getLatestStart() + " of customer " + cPred.getCustNo() + " in vehicle " + v.getId() + " instead of " + latest);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check that the hashes of the tours are the ones of tours rebuilt from scratch, and that a vehicle whose tour
+	 * changed since the last check got a new version, so that no option of its old tour is taken as current
+	 * @param step String, the step of the descent, for the report
+	 */
+	private void checkHashes(String step) {
+		Vehicle[] fleet = vrp.getVehicle();
+		snapshot.capture(vrp);
+		snapshot.restore(reference);
+		for(int i = 0; i < fleet.length; i++) {
+			if(fleet[i].getHash() != reference.getVehicle()[i].getHash()) {
+				fail(step, "hash of vehicle " + fleet[i].getId() + " differs from the one of its rebuilt tour");
+			}
+		}
+		if(vrp.getFingerprint() != reference.getFingerprint()) {
+			fail(step, "fingerprint differs from the one of the rebuilt solution");
+		}
+
+		HashSet<Long> versions = new HashSet<Long>();
+		for(Vehicle v : fleet) {
+			if(!versions.add(v.getVersion())) {
+				fail(step, "version " + v.getVersion() + " is shared by several vehicles");
+			}
+		}
+		if(lastFleet != null) {
+			for(int i = 0; i < lastFleet.length; i++) {
+				Vehicle v = lastFleet[i];
+				if(v.getHash() != lastHash[i] && v.getVersion() == lastVersion[i]) {
+					fail(step, "tour of vehicle " + v.getId() + " changed without a new version");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remember the fleet with the hashes and versions of the vehicles for the next check
+	 */
+	private void rememberFleet() {
+		Vehicle[] fleet = vrp.getVehicle();
+		lastFleet = Arrays.copyOf(fleet, fleet.length);
+		lastHash = new long[fleet.length];
+		lastVersion = new long[fleet.length];
+		for(int i = 0; i < fleet.length; i++) {
+			lastHash[i] = fleet[i].getHash();
+			lastVersion[i] = fleet[i].getVersion();
+		}
+	}
+
+	/**
+	 * Record a failed check
+	 * @param step String, the step of the descent
+	 * @param message String, the description of the failure
+	 */
+	private void fail(String step, String message) {
+		failures.add(step + ": " + message);
+	}
+
+	/**
+	 * Accessor for the failed checks
+	 * @return ArrayList<String>, the descriptions of the failed checks
+	 */
+	public ArrayList<String> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Main method to run the self-check on generated instances
+	 * @param args String[], optionally the numbers of customers and the number of seeds, e.g. 60 120 3
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int[] sizes = {60, 120};
+		int seeds = 2;
+		if(args.length > 0) {
+			sizes = new int[Math.max(1, args.length - 1)];
+			for(int i = 0; i < sizes.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+			if(args.length > 1) {
+				seeds = Integer.parseInt(args[args.length - 1]);
+			}
+		}
+
+		int failed = 0;
+		for(int n : sizes) {
+			for(InstanceGenerator.Type type : InstanceGenerator.Type.values()) {
+				for(long seed = 1; seed <= seeds; seed++) {
+					InstanceGenerator generator = new InstanceGenerator(type, n, seed);
+					for(int granularity : GRANULARITIES) {
+						for(int mode = 0; mode < MODES; mode++) {
+							SelfCheck check = new SelfCheck(new VRP(generator));
+							int moves = check.runDescent(mode, granularity);
+							String result = check.getFailures().isEmpty() ? "ok" : "FAILED " + check.getFailures().get(0);
+							System.out.println(String.format("%s k %d mode %d: %d moves, %s", type + "_" + n + "_" + seed, granularity, mode, moves, result));
+							if(!check.getFailures().isEmpty()) {
+								failed++;
+							}
+						}
+					}
+				}
+			}
+		}
+		System.out.println(failed == 0 ? "All checks passed" : failed + " runs failed");
+	}
+}
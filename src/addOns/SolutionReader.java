@@ -0,0 +1,86 @@
+package addOns;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import representation.NumberScanner;
+
+/**
+ * Class to read a solution file as it is written by the descents
+ * @author Tom Decke
+ *
+ */
+public class SolutionReader {
+
+	private int availableVehicles;
+	private int neededVehicles;
+	private ArrayList<int[]> vehicles;
+	private double cost;
+
+	/**
+	 * Constructor that reads the solution
+	 * @param fname String, the path to the solution
+	 * @throws IOException
+	 */
+	public SolutionReader(String fname) throws IOException {
+		NumberScanner sc = new NumberScanner(fname);
+
+		//read number of available and needed vehicles
+		availableVehicles = sc.nextInt();
+		neededVehicles = sc.nextInt();
+
+		//extract the routes, each of which is terminated by -1
+		vehicles = new ArrayList<int[]>();
+		int[] route = new int[16];
+		while(vehicles.size() < neededVehicles && sc.hasNextNumber()) {
+			int length = 0;
+			int id = sc.nextInt();
+			while(id != -1) {
+				if(length == route.length) {
+					route = Arrays.copyOf(route, 2 * length);
+				}
+				route[length++] = id;
+				id = sc.nextInt();
+			}
+			vehicles.add(Arrays.copyOf(route, length));
+		}
+
+		//retrieve the cost
+		if(!sc.skipTo("cost:")) {
+			throw new IOException("Missing total cost in solution " + fname);
+		}
+		cost = sc.nextDouble();
+	}
+
+	/**
+	 * Accessor for the number of vehicles available in the instance
+	 * @return int, the number of available vehicles
+	 */
+	public int getAvailableVehicles() {
+		return availableVehicles;
+	}
+
+	/**
+	 * Accessor for the number of vehicles used by the solution
+	 * @return int, the number of needed vehicles
+	 */
+	public int getNeededVehicles() {
+		return neededVehicles;
+	}
+
+	/**
+	 * Accessor for the routes of the solution
+	 * @return ArrayList<int[]>, the customer numbers of each route
+	 */
+	public ArrayList<int[]> getVehicles() {
+		return vehicles;
+	}
+
+	/**
+	 * Accessor for the cost of the solution
+	 * @return double, the cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+}
@@ -1,8 +1,10 @@
 package addOns;
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 
 import representation.Customer;
+import representation.ProblemInstance;
 import representation.VRP;
 import representation.Vehicle;
 
@@ -32,6 +34,13 @@ public class TestSolution {
 		//distance of all vehicles
 		double totalDist = 0; 
 
+		//the customer data is read from the arrays of the instance
+		ProblemInstance instance = vrp.getInstance();
+		int[] demand = instance.getDemands();
+		int[] ready = instance.getReadyTimes();
+		int[] due = instance.getDueDates();
+		int[] service = instance.getServiceTimes();
+
 		//check if the solution would need more vehicles than available
 		if(vehicles.size() > vrp.getM()) {
 			System.out.println("To many vehicles");
@@ -69,7 +78,7 @@ public class TestSolution {
 				}
 
 				//check if the target of travel belongs to the vrp
-				if(cSucc.getCustNo() > vrp.getN()) {
+				if(cSucc.getCustNo() > vrp.getN() || cSucc.getIndex() > vrp.getN()) {
 					System.out.println("Customer does not belong to the VRP.");
 					return false;
 				}
@@ -82,7 +91,7 @@ public class TestSolution {
 				double arrival = distTraveled + leave;
 
 				//check if the vehicle arrives after the due date of the customer
-				if(arrival > cSucc.getDueDate()) {
+				if(arrival > due[cSucc.getSlot()]) {
 					System.out.println("Violated time window constraint");
 					return false;
 				}
@@ -90,18 +99,18 @@ public class TestSolution {
 
 				//if the vehicle arrives before the ready time, wait for the customer to be ready
 				double start = arrival;
-				if(arrival < cSucc.getReadyTime()) {
-					start = cSucc.getReadyTime();
+				if(arrival < ready[cSucc.getSlot()]) {
+					start = ready[cSucc.getSlot()];
 				}
 
 				//calculate the time at which the car leaves the customer(pred)
-				leave = start + cCur.getServiceTime();
+				leave = start + service[cCur.getSlot()];
 
 				//mark the customer as visited
 				cVisited[cCur.getCustNo()] += 1;
 
 				//increase the load of the vehicle
-				carriedLoad += cCur.getDemand();
+				carriedLoad += demand[cCur.getIndex()];
 
 				//prepare to move to the next customer
 				cCur = cSucc;
@@ -154,46 +163,31 @@ public class TestSolution {
 	 * @throws IOException
 	 */
 	public static boolean testFile(String vrpIn, int numCust, String vrpSoln) throws IOException {
+		return testFile(ProblemInstance.load(vrpIn, numCust), vrpSoln);
+	}
+
+	/**
+	 * Extracts the proposed solution from a file and tests it against an already loaded instance
+	 * @param instance ProblemInstance, the problem instance
+	 * @param vrpSoln String, the path to the proposed solution
+	 * @return boolean, whether or not the solution is valid for the given vrp-instance
+	 * @throws IOException
+	 */
+	public static boolean testFile(ProblemInstance instance, String vrpSoln) throws IOException {
 
-		int neededVehicles = 0;
 		double costSoln = 0;
 		ArrayList<int[]> vehicles = new ArrayList<int[]>();
 
-		//create reader to take in the solution
-		FileReader reader;
-		Scanner sc;
+		//take in the solution
 		try {
-			reader = new FileReader(vrpSoln);
-
-			sc = new Scanner(reader);
-
-			//read number of customers and needed vehicles, then move to the next line
-			sc.nextInt();
-			neededVehicles = sc.nextInt();
-			sc.nextLine();
-
-			//extract the routes from the file
-			int vCount = 0;
-			while(sc.hasNextLine() && vCount < neededVehicles) {
-				String[] vArray = sc.nextLine().split("[ ]+");
-				int[] customers = new int[vArray.length-1];
-				for (int i = 0; i < vArray.length-1; i++) {
-					customers[i] = Integer.parseInt(vArray[i]);
-				}
-				vehicles.add(customers);
-				vCount++;
-			}
-			//retrieve the cost
-			String[] tmp = sc.nextLine().split(" ");
-			costSoln = Double.parseDouble(tmp[2]);
-
-			sc.close();
-			reader.close();
-		} catch (FileNotFoundException fnfe) {
-			System.out.println(fnfe.getMessage());
-		} 
+			SolutionReader reader = new SolutionReader(vrpSoln);
+			vehicles = reader.getVehicles();
+			costSoln = reader.getCost();
+		} catch (NoSuchFileException nsfe) {
+			System.out.println(nsfe.getMessage());
+		}
 
-		VRP vrp = new VRP(vrpIn,numCust);
+		VRP vrp = new VRP(instance);
 
 		//Add the customers to their corresponding vehicles
 		ArrayList<Vehicle> vSoln = new ArrayList<Vehicle>();
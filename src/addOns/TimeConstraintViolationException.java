@@ -1,13 +0,0 @@
-package addOns;
-public class TimeConstraintViolationException extends Exception{
-	
-	/**
-	 * 
-	 */
-	private static final long serialVersionUID = 1L;
-
-	public TimeConstraintViolationException(String s) {
-		super(s);
-	}
-
-}
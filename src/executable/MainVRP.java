@@ -22,6 +22,8 @@ public class MainVRP {
 		int numCustomer = Integer.parseInt(args[1]);
 		int mode = Integer.parseInt(args[2]);
 		String random = args[3];
+		//the optional fifth argument restricts the operators to granular neighbourhoods of that many candidates per customer
+		int granularity = args.length > 4 ? Integer.parseInt(args[4]) : 0;
 		boolean rand = false;
 		if(random.equals("random")) {
 			rand = true;
@@ -37,7 +39,7 @@ public class MainVRP {
 
 		//run the solver
 		System.out.println("");
-		ArrayList<Operation> ops = RunDescents.getMoves(vrp, numCustomer, mode);
+		ArrayList<Operation> ops = RunDescents.getMoves(vrp, numCustomer, mode, granularity);
 
 
 		stDesc.solve(ops, rand);
@@ -45,8 +47,7 @@ public class MainVRP {
 
 
 		//show all vehicles after the search finished
-		for(int i = 0 ; i<numCustomer; i++) {
-			Vehicle v = stDesc.getVRP().getVehicle()[i];
+		for(Vehicle v : stDesc.getVRP().getVehicle()) {
 			System.out.println("Customer of vehicle "+v.getId() +": " +v.getFirstCustomer().getSucc().toString());
 			v.show();
 			System.out.println("Cost for vehicle "+v.getId()+": "+v.getCost());	
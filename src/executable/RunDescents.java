@@ -1,6 +1,7 @@
 package executable;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import addOns.RandomSolution;
 import addOns.TestSolution;
@@ -9,6 +10,9 @@ import operators.ExchangeOperation;
 import operators.Operation;
 import operators.RelocateOperation;
 import operators.TwoOptOperation;
+import representation.InstanceLoader;
+import representation.ProblemInstance;
+import representation.SolutionSnapshot;
 import representation.VRP;
 import solver.Descent;
 import solver.FirstFitDescent;
@@ -22,13 +26,18 @@ import solver.SteepestDescent;
 public class RunDescents {
 
 	private static final int RANDOM_RUNS = 9;
+	//number of instances that may be loaded or wait for the solver at the same time
+	private static final int LOADER_CAPACITY = 2;
 
 	public static void main(String[] args) throws IOException {
 
 		//get information from the input
 		String folderpath = args[0];
 		int numCustomers = Integer.parseInt(args[1]);
+		//the optional third argument restricts the operators to granular neighbourhoods of that many candidates per customer
+		int granularity = args.length > 2 ? Integer.parseInt(args[2]) : 0;
 		String resultpath = folderpath+"results\\";
+		String binarypath = folderpath+"binary\\";
 
 		int[] modes = {0,1,2,4,6,5,7,3,8,9,10,11};
 		long[] times = new long[14];
@@ -42,26 +51,28 @@ public class RunDescents {
 		VRP vrp = null; 
 		ArrayList<Operation> ops = null;
 
-		//create a folder for the results
+		//create a folder for the results and the converted instances
 		File result = new File(resultpath);
 		result.mkdir();
+		new File(binarypath).mkdir();
 
-		//get the files in the target directory
-		File folder = new File(folderpath);
-		File[] listOfFiles = folder.listFiles();
+		//parse and convert the files in the target directory in the background, while the solver works on the ready ones
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		InstanceLoader loader = new InstanceLoader(new File(folderpath), numCustomers, binarypath, granularity, threads, LOADER_CAPACITY);
 
 		//set up the output-file for all results
 		FileWriter writer = new FileWriter(resultpath+"soln_"+numCustomers+".txt");
 		FileWriter w2 = new FileWriter(resultpath+"time_"+numCustomers+".txt");
 
 		long time = System.currentTimeMillis();
-		//go through the files in the directory
-		for (File file : listOfFiles) {
-			if (file.isFile()) {
-				String fInName = file.getName();
+		try(loader) {
+			for (InstanceLoader.LoadedInstance loaded = loader.take(); loaded != null; loaded = loader.take()) {
+				String fInName = loaded.getFile().getName();
+
+				writer.write(fInName+"\n");
 
-				writer.write(file.getName()+"\n");
-				String vrpInstance = folderpath +fInName;
+				//the problem instance is loaded once and a fresh solution is created for every run
+				ProblemInstance instance = loaded.getInstance();
 
 
 				//execute the the wanted modes for steepest descent 
@@ -70,8 +81,8 @@ public class RunDescents {
 					//get the system time
 					t0 = System.currentTimeMillis();
 					
-					vrp = new VRP(vrpInstance, numCustomers);
-					ops = getMoves(vrp, numCustomers, i);
+					vrp = new VRP(instance);
+					ops = getMoves(vrp, numCustomers, i, granularity);
 
 					//get the descent specified by the input
 					desc = new SteepestDescent(vrp, resultpath + "mode_" + i + "_"+  fInName);
@@ -96,41 +107,41 @@ public class RunDescents {
 				//determine the random result
 				t0 = System.currentTimeMillis();
 				
-				//get problem instance
-				vrp = new VRP(vrpInstance, numCustomers);
+				//get problem instance and remember its start solution, to which every further run is reset
+				vrp = new VRP(instance);
+				SolutionSnapshot start = new SolutionSnapshot(vrp);
 				//get operators
-				ops = getMoves(vrp, numCustomers, 11);
+				ops = getMoves(vrp, numCustomers, 11, granularity);
 				//calculate the first random solution
 				desc = new SteepestDescent(vrp, resultpath + "mode_r_"+  fInName);
 				desc.solve(ops,true);
 
 				//create the first random solution
-				RandomSolution randSoln = new RandomSolution(desc.getTotalCost(), desc.getVehicleCount(), desc.getVRP().getM(), desc.getVehicles());
+				RandomSolution randSoln = new RandomSolution(desc.getTotalCost(), desc.getVehicleCount(), desc.getVRP().getM(), vrp);
 				
 
 				//execute the random solver a given number of times and remember the one with the best result
 				for(int i = 0 ; i < RANDOM_RUNS ; i++) {
-					vrp = new VRP(vrpInstance, numCustomers);
+					start.restore(vrp);
 					desc = new SteepestDescent(vrp, resultpath + "mode_r_"+  fInName);
-					ops = getMoves(vrp, numCustomers, 11);
+					ops = getMoves(vrp, numCustomers, 11, granularity);
 
 					desc.solve(ops,true);
-					RandomSolution rsTmp = new RandomSolution(desc.getTotalCost(), desc.getVehicleCount(), desc.getVRP().getM(), desc.getVehicles());
-					if(rsTmp.getCost() < randSoln.getCost()) {
-						randSoln = rsTmp;
+					if(desc.getTotalCost() < randSoln.getCost()) {
+						randSoln.update(desc.getTotalCost(), desc.getVehicleCount(), vrp);
 					}
 				}
 
 						
 				//write the best result to the files
-				randSoln.writeSolutionToFile(resultpath + "mode_rSoln_"+  file.getName());
+				randSoln.writeSolutionToFile(resultpath + "mode_rSoln_"+  fInName);
 				writer.write(String.format(" & %.2f/%d", randSoln.getCost(),randSoln.getNeededV()));
 
 				times[12] += System.currentTimeMillis() - t0;
 
 				//write the result for the first fit descent
 				t0 = System.currentTimeMillis();
-				vrp = new VRP(vrpInstance, numCustomers);
+				vrp = new VRP(instance);
 				desc = new FirstFitDescent(vrp, resultpath + "mode_FD_"+  fInName);
 			
 				
@@ -160,17 +171,23 @@ public class RunDescents {
 		String sPath = folderpath+"results";
 		File resultFiles = new File(sPath);
 
-		//go through all solutions in the given directory
+		//go through all solutions in the given directory, loading every instance only once
+		HashMap<String, ProblemInstance> instances = new HashMap<String, ProblemInstance>();
 		File[] listOfResults = resultFiles.listFiles();
 		for (File file : listOfResults) {
 			if (file.isFile()) {
 				String fName = file.getName();
 				String[] name = fName.split("_");
-				String vrpName = folderpath+name[2];
+				String vrpName = binarypath+name[2]+".bin";
+				ProblemInstance instance = instances.get(vrpName);
+				if(instance == null) {
+					instance = ProblemInstance.load(vrpName, numCustomers);
+					instances.put(vrpName, instance);
+				}
 
 				//test if the solution is valid
 				System.out.println(fName);
-				boolean testResult = TestSolution.testFile(vrpName, numCustomers,file.getAbsolutePath());
+				boolean testResult = TestSolution.testFile(instance, file.getAbsolutePath());
 				if(!testResult) {
 					System.out.println("Invalid solution: " + name[2]);
 				}
@@ -186,11 +203,29 @@ public class RunDescents {
 	 * @return ArrayList<Operation>, the operators which are to be applied
 	 */
 	public static ArrayList<Operation> getMoves(VRP vrp, int numCustomer, int mode){
+		return getMoves(vrp, numCustomer, mode, 0);
+	}
+
+	/**
+	 * Creates an array list containing different improvement operators, which only evaluate granular neighbourhoods
+	 * @param vrp VRP, the problem instance to which the operators are to be applied
+	 * @param numCustomer int, the number of customers in the vrp
+	 * @param mode int, number corresponding to the combination of desired operators
+	 * @param granularity int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @return ArrayList<Operation>, the operators which are to be applied
+	 */
+	public static ArrayList<Operation> getMoves(VRP vrp, int numCustomer, int mode, int granularity){
 		ArrayList<Operation> ops = new ArrayList<Operation>();
-		RelocateOperation rlo = new RelocateOperation(vrp, numCustomer);
-		ExchangeOperation exo = new ExchangeOperation(vrp, numCustomer);
-		TwoOptOperation	  two = new TwoOptOperation(vrp, numCustomer);
-		CrossExOperation  ceo = new CrossExOperation(vrp, numCustomer);
+		RelocateOperation rlo = new RelocateOperation(vrp);
+		ExchangeOperation exo = new ExchangeOperation(vrp);
+		TwoOptOperation	  two = new TwoOptOperation(vrp);
+		CrossExOperation  ceo = new CrossExOperation(vrp);
+		if(granularity > 0) {
+			rlo.setGranular(granularity, true);
+			exo.setGranular(granularity, true);
+			two.setGranular(granularity, true);
+			ceo.setGranular(granularity, true);
+		}
 
 		switch(mode) {
 		case 0:
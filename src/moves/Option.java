@@ -18,6 +18,7 @@ public abstract class Option {
 	protected Customer c1;
 	protected Customer c2;
 	protected double delta;
+	private final long version1, version2; // versions of the vehicles the option was determined for
 
 	/**
 	 * Create an option
@@ -35,6 +36,20 @@ public abstract class Option {
 		this.delta = delta;
 		this.v1 = v1;
 		this.v2 = v2;
+		this.version1 = v1 == null ? 0 : v1.getVersion();
+		this.version2 = v2 == null ? 0 : v2.getVersion();
+	}
+
+	/**
+	 * Check if the option was determined for two vehicles in their current state,
+	 * i.e. neither vehicle changed since and the option does not have to be determined again
+	 * @param v1 Vehicle, the first vehicle the option should belong to
+	 * @param v2 Vehicle, the second vehicle the option should belong to, or null if the option only involves one vehicle
+	 * @return boolean, true if the option is up to date
+	 */
+	public boolean isCurrentFor(Vehicle v1, Vehicle v2) {
+		return this.v1 == v1 && this.v2 == v2
+				&& version1 == v1.getVersion() && (v2 == null || version2 == v2.getVersion());
 	}
 
 	/**
@@ -0,0 +1,84 @@
+package operators;
+import java.util.Arrays;
+
+import representation.CandidateList;
+import representation.Vehicle;
+
+/**
+ * Buffer for the positions of a tour at which a move creates a candidate edge, so that granular neighbourhoods
+ * are built from the candidate lists instead of going through the whole tour.
+ * The positions are sorted before they are used, so the moves are evaluated in the same order as in the full neighbourhood.
+ * @author Tom Decke
+ *
+ */
+final class CandidatePositions {
+
+	private int[] positions = new int[16];
+	private int count;
+
+	/**
+	 * Remove all positions
+	 */
+	void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Add a single position
+	 * @param p int, the position
+	 */
+	void add(int p) {
+		if(count == positions.length) {
+			positions = Arrays.copyOf(positions, 2 * count);
+		}
+		positions[count++] = p;
+	}
+
+	/**
+	 * Add the positions of the customers on a tour that share a candidate edge with a customer.
+	 * The position of a customer is looked up in the positions of the VRP and only used if the tour holds it there.
+	 * @param candidates CandidateList, the candidate lists
+	 * @param c int, index of the customer
+	 * @param v Vehicle, the vehicle of the tour
+	 * @param position int[], the position of each customer on the tour of its vehicle
+	 * @param offset int, the shift of the added positions relative to the positions of the adjacent customers
+	 * @param from int, the first position that may be added
+	 * @param to int, the last position that may be added
+	 */
+	void addAdjacent(CandidateList candidates, int c, Vehicle v, int[] position, int offset, int from, int to) {
+		int[] route = v.getRoute();
+		int length = v.getRouteLength();
+		for(int r = 0, degree = candidates.getDegree(c); r < degree; r++) {
+			int adjacent = candidates.getAdjacent(c, r);
+			int q = position[adjacent];
+			if(q >= 1 && q <= length && route[q] == adjacent && q + offset >= from && q + offset <= to) {
+				add(q + offset);
+			}
+		}
+	}
+
+	/**
+	 * Sort the positions in increasing order and drop duplicates
+	 * @return int, the number of distinct positions
+	 */
+	int sort() {
+		Arrays.sort(positions, 0, count);
+		int distinct = 0;
+		for(int i = 0; i < count; i++) {
+			if(distinct == 0 || positions[i] != positions[distinct - 1]) {
+				positions[distinct++] = positions[i];
+			}
+		}
+		count = distinct;
+		return count;
+	}
+
+	/**
+	 * Accessor for a position
+	 * @param i int, the number of the position, below the number returned by sort()
+	 * @return int, the position
+	 */
+	int get(int i) {
+		return positions[i];
+	}
+}
@@ -7,7 +7,10 @@ import addOns.DisplayVRP;
 import addOns.TestSolution;
 import moves.CrossExOption;
 import moves.Option;
+import representation.CandidateList;
 import representation.Customer;
+import representation.ParallelRows;
+import representation.Segment;
 import representation.VRP;
 import representation.Vehicle;
 import solver.SteepestDescent;
@@ -21,32 +24,113 @@ public class CrossExOperation implements Operation{
 
 	private final double EPSILON = 1E-8;
 	private VRP vrp;
-	private int numCustomers;
+	private int numVehicles; // dimension of the option matrix, which follows the fleet
 	private Option[][] crossExMatrix;
+	private OptionHeap best = new OptionHeap(); // the entries of the cross-exchange matrix ordered by their delta
+	private CandidateList candidates; // restricts the moves to candidate edges, null if all moves are evaluated
+	private double pruningMargin = -1; // vehicle pairs whose tours are further apart are skipped, negative to evaluate all pairs
 
 	/**
 	 * Constructor for the cross-exchange operation
 	 * @param vrp VRP, the VRP to which the operation is to be applied
-	 * @param numCustomers int, the number of customers in the VRP
 	 */
-	public CrossExOperation(VRP vrp, int numCustomers) {
-		this.vrp=vrp;
-		this.numCustomers = numCustomers;
-		this.crossExMatrix = new CrossExOption[numCustomers][numCustomers];
+	public CrossExOperation(VRP vrp) {
+		this.vrp = vrp;
+	}
+
+	/**
+	 * Restrict the operation to moves which create at least one edge between a customer and one of its k nearest customers
+	 * @param k int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @param timeWindows boolean, whether or not candidates with incompatible time windows are to be excluded
+	 */
+	public void setGranular(int k, boolean timeWindows) {
+		candidates = k > 0 ? vrp.getCandidates(k, timeWindows) : null;
+	}
+
+	/**
+	 * Skip pairs of vehicles whose tours are far apart, i.e. the bounding boxes of their customers
+	 * do not overlap when enlarged by the given margin
+	 * @param margin double, the margin, or a negative value to evaluate all pairs of vehicles
+	 */
+	public void setSpatialPruning(double margin) {
+		this.pruningMargin = margin;
+	}
+
+	/**
+	 * Check in O(1) if an edge is allowed to be created in the current mode
+	 * @param c1 Customer, the first customer of the edge
+	 * @param c2 Customer, the second customer of the edge
+	 * @return boolean, true if all moves are evaluated or the edge is a candidate edge
+	 */
+	private boolean isCandidate(Customer c1, Customer c2) {
+		return candidates == null || candidates.isCandidate(c1.getIndex(), c2.getIndex());
+	}
+
+	/**
+	 * Collect the positions p2 of the second tour for which exchanging the ends after p1 and p2 creates a candidate edge,
+	 * i.e. the customer at p2+1 becomes adjacent to the one at p1 or the customer at p1+1 becomes adjacent to the one at p2
+	 * @param v1 Vehicle, the first vehicle
+	 * @param p1 int, the position of the first tour after which its end is exchanged, neither it nor the next one may be the depot
+	 * @param v2 Vehicle, the second vehicle
+	 * @param positions CandidatePositions, receives the positions
+	 * @return int, the number of positions
+	 */
+	private int exchangePositions(Vehicle v1, int p1, Vehicle v2, CandidatePositions positions) {
+		int[] route = v1.getRoute();
+		int length2 = v2.getRouteLength();
+		positions.clear();
+		positions.add(0);
+		positions.add(length2);
+		positions.addAdjacent(candidates, route[p1], v2, vrp.getPositions(), -1, 0, length2);
+		positions.addAdjacent(candidates, route[p1 + 1], v2, vrp.getPositions(), 0, 0, length2);
+		return positions.sort();
 	}
 
 	/**
 	 * Create the matrix containing the best cross exchange for two vehicles
 	 */
 	public void createOptionMatrix() {
+		numVehicles = vrp.getNumVehicles();
+		crossExMatrix = OptionMatrices.fit(crossExMatrix, numVehicles);
+		vrp.prepareEvaluation();
 		//fill half of the matrix since exchanging between a & b is equivalent to exchanging between b & a
-		for(int i = 0 ; i < numCustomers ; i++) {
-			for(int j = i+1; j < numCustomers; j++) {
-				crossExMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);
+		//the rows are evaluated in parallel
+		long length = OptionMatrices.averageLength(vrp);
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(numVehicles * length * length), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				for(int j = i+1; j < numVehicles; j++) {
+					crossExMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);
+				}
+			}
+		});
+		indexMatrix();
+	}
+
+	/**
+	 * Order all entries of the upper half of the cross-exchange matrix in the heap
+	 */
+	private void indexMatrix() {
+		best.reset(crossExMatrix.length, crossExMatrix.length);
+		for(int i = 0; i < numVehicles; i++) {
+			for(int j = i+1; j < numVehicles; j++) {
+				best.put(i, j, crossExMatrix[i][j].getDelta());
 			}
 		}
 	}
 
+	/**
+	 * Pass the changed entries of a vehicle on to the heap
+	 * @param index int, the index of the vehicle
+	 */
+	private void indexVehicle(int index) {
+		for(int i = 0; i < index; i++) {
+			best.put(i, index, crossExMatrix[i][index].getDelta());
+		}
+		for(int i = index+1; i < numVehicles; i++) {
+			best.put(index, i, crossExMatrix[index][i].getDelta());
+		}
+	}
+
 	/**
 	 * Find the best possible cross exchange between two vehicle routes
 	 * @param v1 Vehicle, the first vehicle for comparison
@@ -61,36 +145,53 @@ public class CrossExOperation implements Operation{
 		Customer cV2 = v2.getFirstCustomer();
 
 		//memorize the demand of the routes 
-		int newLoadV1 = checkLoad(v1);
-		int newLoadV2 = checkLoad(v2);
+		int length1 = v1.getRouteLength();
+		int length2 = v2.getRouteLength();
+		int newLoadV1 = v1.getLoadUpTo(length1 + 1);
+		int newLoadV2 = v2.getLoadUpTo(length2 + 1);
+		Segment newRoute1 = new Segment();
+		Segment newRoute2 = new Segment();
+		CandidatePositions positions = candidates == null ? null : new CandidatePositions();
 
 		//create a default best cross exchange without improvement
 		CrossExOption bestCrossEx = new CrossExOption(v1, v2, cV1, cV2, newLoadV1, newLoadV2, 0,this);
 
-		//memorize the distance of the route-parts
-		double distUpToC1 = 0;
-		double distAfterC1 = v1.getDistance();
-
-		double distUpToC2 = vrp.distance(v2.getFirstCustomer(), cV2);
-		double distAfterC2 = v2.getDistance()-distUpToC2;
-
-		//go through the customer combinations 
-		while(!cV1.equals(v1.getLastCustomer())) {
-
-			//reset distance, load and starting point for the new combination
-			cV2 = v2.getFirstCustomer();
-			distUpToC2 = vrp.distance(v2.getFirstCustomer(), cV2);
-			distAfterC2 = v2.getDistance() - distUpToC2;
-
-			while(!cV2.equals(v2.getLastCustomer())) {
+		//skip vehicles that are too far apart
+		if(pruningMargin >= 0 && !v1.isNear(v2, pruningMargin)) {
+			return bestCrossEx;
+		}
 
-				//get the succeeding customers
-				Customer cV1Succ = cV1.getSucc();
-				Customer cV2Succ = cV2.getSucc();
+		//the distances of the route-parts come from the prefix sums of both vehicles, so the delta of an exchange is the same
+		//bit for bit whichever of the two vehicles is the first one. Options whose deltas differ by less than EPSILON
+		//are ties, which the first one wins, so that the rounding of the prefix sums does not decide between them.
+		//go through the customer combinations by their positions
+		for(int p1 = 0; p1 <= length1; p1++) {
+			cV1 = v1.getCustomerAt(p1);
+			Customer cV1Succ = v1.getCustomerAt(p1 + 1);
+
+			//the distances and the loads of the route-parts of vehicle 1
+			double distUpToC1 = v1.getDistanceUpTo(p1);
+			double distAfterC1 = v1.getDistanceBetween(p1 + 1, length1 + 1);
+			int loadUpToC1 = v1.getLoadUpTo(p1);
+			int loadAfterC1 = v1.getLoadBetween(p1 + 1, length1 + 1);
+
+			//in granular mode the ends of the second tour for which one of the new edges is a candidate edge are collected
+			//from the candidates, unless an edge to the depot is created anyway or the tour is shorter than the lists of candidates
+			boolean collect = candidates != null && cV1.getIndex() != 0 && cV1Succ.getIndex() != 0
+					&& candidates.getDegree(cV1.getIndex()) + candidates.getDegree(cV1Succ.getIndex()) < length2;
+			int count = collect ? exchangePositions(v1, p1, v2, positions) : length2 + 1;
+			for(int r = 0; r < count; r++) {
+				int p2 = collect ? positions.get(r) : r;
+
+				//get the succeeding customer
+				cV2 = v2.getCustomerAt(p2);
+				Customer cV2Succ = v2.getCustomerAt(p2 + 1);
+				double distUpToC2 = v2.getDistanceUpTo(p2);
+				double distAfterC2 = v2.getDistanceBetween(p2 + 1, length2 + 1);
 
 				//calculate the change in cost due to this move
-				double newCost = (distUpToC1 + vrp.distance(cV1, cV2Succ) + distAfterC2  - vrp.distance(cV2, cV2Succ)) * v1.getCostOfUse()
-						+ (distUpToC2 + vrp.distance(cV2, cV1Succ) + distAfterC1  - vrp.distance(cV1, cV1Succ)) * v2.getCostOfUse();
+				double newCost = (distUpToC1 + vrp.distance(cV1.getIndex(), cV2Succ.getIndex()) + distAfterC2) * v1.getCostOfUse()
+						+ (distUpToC2 + vrp.distance(cV2.getIndex(), cV1Succ.getIndex()) + distAfterC1) * v2.getCostOfUse();
 				
 				double delta = newCost - oldCost;
 
@@ -104,53 +205,31 @@ public class CrossExOperation implements Operation{
 					delta = 0;
 				}
 
-				//make sure the move would be an improvement
-				if(delta < bestCrossEx.getDelta()) {
-
-					//swap the routes
-					cV1.setSucc(cV2Succ);
-					cV2.setSucc(cV1Succ);
-
-					cV1Succ.setPred(cV2);
-					cV2Succ.setPred(cV1);
+				//make sure the move would be an improvement, in granular mode one of the new edges has to be a candidate edge
+				//and the new arcs have to be compatible with respect to the time windows
+				if(delta < bestCrossEx.getDelta() - EPSILON && (collect || isCandidate(cV1, cV2Succ) || isCandidate(cV2, cV1Succ))
+						&& vrp.canFollow(cV1.getIndex(), cV2Succ.getIndex()) && vrp.canFollow(cV2.getIndex(), cV1Succ.getIndex())) {
 
 					//check capacity constraints
-					newLoadV1 = checkLoad(v1);
-					newLoadV2 = checkLoad(v2);
+					newLoadV1 = loadUpToC1 + v2.getLoadBetween(p2 + 1, length2 + 1);
+					newLoadV2 = v2.getLoadUpTo(p2) + loadAfterC1;
 					if(newLoadV1 <= v1.getCapacity() && newLoadV2 <= v2.getCapacity()) {
 
+						//concatenate the start of each route with the end of the other one
+						newRoute1.concat(v1.getPrefix(p1), vrp.distance(cV1.getIndex(), cV2Succ.getIndex()), v2.getSuffix(p2 + 1));
+						newRoute2.concat(v2.getPrefix(p2), vrp.distance(cV2.getIndex(), cV1Succ.getIndex()), v1.getSuffix(p1 + 1));
+
 						//if the swap is conform to time window constraints remember the option
-						if(checkPropagation(v1) && checkPropagation(v2)) {
+						if(newRoute1.isFeasible() && newRoute2.isFeasible()) {
 							bestCrossEx = new CrossExOption(v1, v2, cV1, cV2, newLoadV1, newLoadV2, delta,this);
 						}
 					}
-
-					//reverse the swap
-					cV1.setSucc(cV1Succ);
-					cV2.setSucc(cV2Succ);
-
-					cV1Succ.setPred(cV1);
-					cV2Succ.setPred(cV2);
 				}
-
-				//move to the next customer of vehicle 2
-				cV2 = cV2.getSucc();	
-
-				//update the distance towards/after the second customer
-				distUpToC2 += vrp.distance(cV2.getPred(), cV2);
-				distAfterC2 -=  vrp.distance(cV2.getPred(), cV2);
 			}
-
-			//move to the next customer of vehicle 1
-			cV1 = cV1.getSucc();		
-
-			//update the distance towards/after the first customer
-			distUpToC1 += vrp.distance(cV1.getPred(), cV1);
-			distAfterC1 -= vrp.distance(cV1.getPred(), cV1);
 		}
 		
 		//if possible move customer from virtual to real vehicle
-		if(v1.getFirstCustomer().getSucc().equals(v1.getLastCustomer())&&!v2.getFirstCustomer().getSucc().equals(v2.getLastCustomer())) {
+		if(v1.isEmpty() && !v2.isEmpty()) {
 			if(v1.getCostOfUse() < v2.getCostOfUse()) {
 				double delta = v2.getDistance() - v2.getCost();
 				bestCrossEx = new CrossExOption(v1, v2, v1.getFirstCustomer(), v2.getFirstCustomer(), v2.getLoad(), 0, delta, this);
@@ -160,80 +239,14 @@ public class CrossExOperation implements Operation{
 	}
 
 	/**
-	 * Determine the load carried by a vehicle
-	 * @param v Vehicle, the vehicle to be checked
-	 * @return int, the load carried by v
-	 */
-	private int checkLoad(Vehicle v) {
-		int load = 0;
-		//go through the customers in the vehicle and sum up the load
-		Customer cCur = v.getFirstCustomer();
-		while(cCur != null) {
-			load += cCur.getDemand();
-			cCur = cCur.getSucc();
-		}
-		return load;
-	}
-
-	/**
-	 * Check if the vehicle violates time window constraints
-	 * @param v Vehicle, the vehicle to be checked
-	 * @return boolean, true if there are no time window violations
-	 */
-	private boolean checkPropagation(Vehicle v) {
-		Customer cCur = v.getFirstCustomer();
-
-		//get the current earliest and latest start
-		while(cCur != null) {
-			cCur.setCheckEarliest(cCur.getEarliestStart());
-			cCur.setCheckLatest(cCur.getLatestStart());
-			cCur = cCur.getSucc();
-		}
-
-		//execute forward propagation
-		cCur = v.getFirstCustomer();
-		Customer cSucc = cCur.getSucc();
-		while(cSucc != null) {
-			cSucc.setCheckEarliest(Math.max(cSucc.getReadyTime(),cCur.getCheckEarliest()+cCur.getServiceTime()+vrp.distance(cCur,cSucc)));
-			cCur = cSucc;
-			cSucc = cSucc.getSucc();
-		}
-
-		//execute backward propagation
-		cCur = v.getLastCustomer();
-		Customer cPred = cCur.getPred();
-		while(cPred != null) {
-			cPred.setCheckLatest(Math.min(cPred.getDueDate(), cCur.getCheckLatest() - cCur.getServiceTime() - vrp.distance(cPred, cCur)));
-			cCur = cPred;
-			cPred = cPred.getPred();
-		}
-
-		//check for constraint violation
-		cCur = v.getFirstCustomer();
-		while(cCur != null) {
-			if(cCur.getCheckLatest() < cCur.getCheckEarliest()) {
-				return false;
-			}
-			cCur = cCur.getSucc();
-		}
-		return true;
-	}
-
-	/**
-	 * Retrieve the best cross exchange option from the cross-exchange matrix
+	 * Retrieve the best cross exchange option from the cross-exchange matrix, which is held at the top of the heap
 	 * @return CrossExOption, the cross exchange option with the greatest benefit
 	 */
 	public Option fetchBestOption() {
-		Option bestCrossEx = crossExMatrix[0][1];
-		for(int i = 0 ; i < numCustomers ; i++) {
-			for(int j = i+1; j < numCustomers; j++) {
-				Option curCrossEx = crossExMatrix[i][j];
-				if(curCrossEx.getDelta() < bestCrossEx.getDelta()) {
-					bestCrossEx = curCrossEx;
-				}
-			}
+		if(best.isEmpty()) {
+			return crossExMatrix[0][1];
 		}
-		return bestCrossEx;
+		return crossExMatrix[best.peekRow()][best.peekColumn()];
 	}
 
 	/**
@@ -282,6 +295,8 @@ public class CrossExOperation implements Operation{
 		//update the load of the vehicles after the exchange
 		v1.setLoad(bCE.getLoadForV1()); 
 		v2.setLoad(bCE.getLoadForV2());
+		v1.rebuildRoute();
+		v2.rebuildRoute();
 
 		//update distance and cost of the vehicle
 		updateVehicle(v1);
@@ -298,23 +313,22 @@ public class CrossExOperation implements Operation{
 	 * @param v Vehicle, the vehicle to update
 	 */
 	private void propagateVehicle(Vehicle v) {
-		Customer cCur = v.getFirstCustomer();
-		//execute forward propagation
-		cCur = v.getFirstCustomer();
-		Customer cSucc = cCur.getSucc();
-		while(cSucc != null) {
-			cSucc.setEarliestStart(Math.max(cSucc.getReadyTime(),cCur.getEarliestStart()+cCur.getServiceTime()+vrp.distance(cCur,cSucc)));
-			cCur = cSucc;
-			cSucc = cSucc.getSucc();
+		int end = v.getRouteLength() + 1;
+		int[] ready = vrp.getInstance().getReadyTimes();
+		int[] due = vrp.getInstance().getDueDates();
+		int[] service = vrp.getInstance().getServiceTimes();
+		//execute forward propagation, the depot customers at the ends of the tour have their own slots in the arrays
+		for(int p = 1; p <= end; p++) {
+			Customer cCur = v.getCustomerAt(p - 1);
+			Customer cSucc = v.getCustomerAt(p);
+			cSucc.setEarliestStart(Math.max(ready[cSucc.getSlot()],cCur.getEarliestStart()+service[cCur.getSlot()]+vrp.distance(cCur.getIndex(), cSucc.getIndex())));
 		}
 
 		//execute backward propagation
-		cCur = v.getLastCustomer();
-		Customer cPred = cCur.getPred();
-		while(cPred != null) {
-			cPred.setLatestStart(Math.min(cPred.getDueDate(), cCur.getLatestStart() - cCur.getServiceTime() - vrp.distance(cPred, cCur)));
-			cCur = cPred;
-			cPred = cPred.getPred();
+		for(int p = end; p > 0; p--) {
+			Customer cCur = v.getCustomerAt(p);
+			Customer cPred = v.getCustomerAt(p - 1);
+			cPred.setLatestStart(Math.min(due[cPred.getSlot()], cCur.getLatestStart() - service[cPred.getSlot()] - vrp.distance(cPred.getIndex(), cCur.getIndex())));
 		}
 	}
 
@@ -325,20 +339,13 @@ public class CrossExOperation implements Operation{
 	private void updateVehicle(Vehicle v) {
 
 		//clear empty vehicles
-		if(v.getFirstCustomer().getSucc().equals(v.getLastCustomer())) {
+		if(v.isEmpty()) {
 			v.setDistance(0);
 			v.setCost(0);
 		}
 		else {
-			//re-evaluate the cost of occupied vehicles
-			double dist = 0;
-			Customer cCur = v.getFirstCustomer();
-			Customer cSucc = cCur.getSucc();
-			while(cSucc != null) {
-				dist += vrp.distance(cCur, cSucc);
-				cCur = cSucc;
-				cSucc = cSucc.getSucc();
-			}
+			//re-evaluate the cost of occupied vehicles, the rebuilt route already holds the length of the tour
+			double dist = v.getDistanceUpTo(v.getRouteLength() + 1);
 			v.setDistance(dist);
 			v.setCost(dist * v.getCostOfUse());
 		}
@@ -352,22 +359,92 @@ public class CrossExOperation implements Operation{
 	public void updateOptionMatrix(Vehicle v1, Vehicle v2){
 		int indV1 = v1.getIndex();
 		int indV2 = v2.getIndex();
-		for(int i = 0; i < numCustomers; i++) {
-			Vehicle cV = vrp.getVehicle()[i];
-
-			//only consider inter-route and one way crossing
-			if(indV1 < i) {
-				crossExMatrix[indV1][i] = findBestOption(v1,cV);
-			}
-			else if(indV1 > i) {
-				crossExMatrix[i][indV1] = findBestOption(cV,v1);
-			}
-			if(indV2 < i) {
-				crossExMatrix[indV2][i] = findBestOption(v2,cV);		
-			}
-			else if(indV2 > i) {
-				crossExMatrix[i][indV2] = findBestOption(cV,v2);		
+		vrp.prepareEvaluation();
+		//the entries of the other vehicles are independent of each other and are evaluated in parallel
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(OptionMatrices.updateWork(vrp, v1, v2)), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				if(i != indV1 && i != indV2) {
+					updateEntries(v1, v2, i);
+				}
 			}
+		});
+		//the entry between the two vehicles is written twice, so it is evaluated last and in order
+		updateEntries(v1, v2, Math.min(indV1, indV2));
+		if(indV1 != indV2) {
+			updateEntries(v1, v2, Math.max(indV1, indV2));
+		}
+		//only the entries of the two vehicles changed
+		indexVehicle(indV1);
+		if(indV1 != indV2) {
+			indexVehicle(indV2);
+		}
+	}
+
+	/**
+	 * Recalculate the entries between the vehicles that were affected by a change and another vehicle
+	 * @param v1 Vehicle, the first vehicle that was involved in the change
+	 * @param v2 Vehicle, the second vehicle that was involved in the change
+	 * @param i int, the index of the other vehicle
+	 */
+	private void updateEntries(Vehicle v1, Vehicle v2, int i) {
+		int indV1 = v1.getIndex();
+		int indV2 = v2.getIndex();
+		Vehicle cV = vrp.getVehicle()[i];
+
+		//only consider inter-route and one way crossing, entries of unchanged vehicles are kept
+		if(indV1 < i) {
+			crossExMatrix[indV1][i] = OptionMatrices.refresh(crossExMatrix[indV1][i], this, v1, cV);
+		}
+		else if(indV1 > i) {
+			crossExMatrix[i][indV1] = OptionMatrices.refresh(crossExMatrix[i][indV1], this, cV, v1);
+		}
+		if(indV2 < i) {
+			crossExMatrix[indV2][i] = OptionMatrices.refresh(crossExMatrix[indV2][i], this, v2, cV);
+		}
+		else if(indV2 > i) {
+			crossExMatrix[i][indV2] = OptionMatrices.refresh(crossExMatrix[i][indV2], this, cV, v2);
+		}
+	}
+
+	/**
+	 * Adapt the cross-exchange matrix after a vehicle was removed from the fleet
+	 * @param index int, the index of the removed vehicle, which is now held by the former last vehicle
+	 */
+	public void removeVehicle(int index) {
+		numVehicles--;
+		if(index < numVehicles) {
+			OptionMatrices.moveLast(crossExMatrix, numVehicles, index);
+		}
+		crossExMatrix = OptionMatrices.fit(crossExMatrix, numVehicles);
+		if(crossExMatrix.length != best.getRows()) {
+			indexMatrix();
+			return;
+		}
+		//drop the entries of the former last vehicle
+		for(int i = 0; i < numVehicles; i++) {
+			best.remove(i, numVehicles);
+		}
+		if(index < numVehicles) {
+			indexVehicle(index);
+		}
+	}
+
+	/**
+	 * Extend the cross-exchange matrix by a vehicle that was added at the end of the fleet
+	 * @param v Vehicle, the new vehicle
+	 */
+	public void addVehicle(Vehicle v) {
+		int index = v.getIndex();
+		numVehicles++;
+		crossExMatrix = OptionMatrices.fit(crossExMatrix, numVehicles);
+		for(int i = 0; i < index; i++) {
+			crossExMatrix[i][index] = findBestOption(vrp.getVehicle()[i], v);
+		}
+		if(crossExMatrix.length != best.getRows()) {
+			indexMatrix();
+		}
+		else {
+			indexVehicle(index);
 		}
 	}
 
@@ -379,17 +456,17 @@ public class CrossExOperation implements Operation{
 		//create the top line of the matrix with vehicle-id's
 		String format = "\\ |";
 		System.out.print(String.format("%7s",format));
-		for(int i = 0 ; i < numCustomers; i++) {
+		for(int i = 0 ; i < numVehicles; i++) {
 			format = "v"+vrp.getVehicle()[i].getId()+"|";
 			System.out.print(String.format("%7s", format));
 		}
 		System.out.println("");
 
 		//print the move options line by line
-		for(int j = 0 ; j< numCustomers ; j++) {
+		for(int j = 0 ; j< numVehicles ; j++) {
 			format = "v"+vrp.getVehicle()[j].getId()+"|";
 			System.out.print(String.format("%7s", format));
-			for(int k = 0; k<numCustomers;k++) {
+			for(int k = 0; k<numVehicles;k++) {
 				if(k<=j) {
 					System.out.print(String.format("%7s","X |"));
 				}
@@ -417,7 +494,7 @@ public class CrossExOperation implements Operation{
 		SteepestDescent stDesc = new SteepestDescent(vrp,fileOut);
 
 		ArrayList<Operation> ops = new ArrayList<Operation>();
-		CrossExOperation  ceo = new CrossExOperation(vrp, num);
+		CrossExOperation  ceo = new CrossExOperation(vrp);
 		ops.add(ceo);
 
 
@@ -1,7 +1,10 @@
 package operators;
 import moves.ExchangeOption;
 import moves.Option;
+import representation.CandidateList;
 import representation.Customer;
+import representation.ParallelRows;
+import representation.Segment;
 import representation.VRP;
 import representation.Vehicle;
 
@@ -14,32 +17,118 @@ public class ExchangeOperation implements Operation {
 
 	private final double EPSILON = 1E-10;
 	private Option[][] exchangeMatrix;
+	private OptionHeap best = new OptionHeap(); // the entries of the exchange matrix ordered by their delta
+	private CandidateList candidates; // restricts the moves to candidate edges, null if all moves are evaluated
+	private double pruningMargin = -1; // vehicle pairs whose tours are further apart are skipped, negative to evaluate all pairs
 	private VRP vrp;
-	int numCustomers;
+	private int numVehicles; // dimension of the option matrix, which follows the fleet
 
 	/**
 	 * Constructor for the exchange operation
 	 * @param vrp VRP, the VRP to which the operation is to be applied
-	 * @param numCustomers int, the number of customers in the VRP
 	 */
-	public ExchangeOperation(VRP vrp, int numCustomers) {
+	public ExchangeOperation(VRP vrp) {
 		this.vrp = vrp;
-		this.numCustomers = numCustomers;
-		exchangeMatrix = new ExchangeOption[numCustomers][numCustomers];
+	}
+
+	/**
+	 * Restrict the operation to moves which create at least one edge between a customer and one of its k nearest customers
+	 * @param k int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @param timeWindows boolean, whether or not candidates with incompatible time windows are to be excluded
+	 */
+	public void setGranular(int k, boolean timeWindows) {
+		candidates = k > 0 ? vrp.getCandidates(k, timeWindows) : null;
+	}
+
+	/**
+	 * Skip pairs of vehicles whose tours are far apart, i.e. the bounding boxes of their customers
+	 * do not overlap when enlarged by the given margin
+	 * @param margin double, the margin, or a negative value to evaluate all pairs of vehicles
+	 */
+	public void setSpatialPruning(double margin) {
+		this.pruningMargin = margin;
+	}
+
+	/**
+	 * Check in O(1) if an edge is allowed to be created in the current mode
+	 * @param c1 Customer, the first customer of the edge
+	 * @param c2 Customer, the second customer of the edge
+	 * @return boolean, true if all moves are evaluated or the edge is a candidate edge
+	 */
+	private boolean isCandidate(Customer c1, Customer c2) {
+		return candidates == null || candidates.isCandidate(c1.getIndex(), c2.getIndex());
+	}
+
+	/**
+	 * Collect the positions of the second tour whose customer can be exchanged with the customer at a position of the first tour,
+	 * such that at least one of the new edges is a candidate edge. Neither neighbour of the customer may be the depot.
+	 * @param v1 Vehicle, the first vehicle
+	 * @param p1 int, the position of the customer in the first tour
+	 * @param v2 Vehicle, the second vehicle
+	 * @param positions CandidatePositions, receives the positions
+	 * @return int, the number of positions
+	 */
+	private int exchangePositions(Vehicle v1, int p1, Vehicle v2, CandidatePositions positions) {
+		int[] route = v1.getRoute();
+		int[] position = vrp.getPositions();
+		int length2 = v2.getRouteLength();
+		positions.clear();
+		//the customer of the second tour gets a candidate edge to the new predecessor or successor
+		positions.addAdjacent(candidates, route[p1 - 1], v2, position, 0, 1, length2);
+		positions.addAdjacent(candidates, route[p1 + 1], v2, position, 0, 1, length2);
+		//the customer of the first tour gets a candidate edge to the new predecessor or successor
+		positions.add(1);
+		positions.add(length2);
+		positions.addAdjacent(candidates, route[p1], v2, position, 1, 1, length2);
+		positions.addAdjacent(candidates, route[p1], v2, position, -1, 1, length2);
+		return positions.sort();
 	}
 
 	/**
 	 * Create the matrix containing the best exchanges between tours
 	 */
 	public void createOptionMatrix() {
+		numVehicles = vrp.getNumVehicles();
+		exchangeMatrix = OptionMatrices.fit(exchangeMatrix, numVehicles);
+		vrp.prepareEvaluation();
 		//fill half of the matrix since swapping a & b is equivalent to swapping b & a
-		for(int i = 0 ; i < numCustomers ; i++) {
-			for(int j = i+1; j < numCustomers; j++) {
-				exchangeMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);
+		//the rows are evaluated in parallel
+		long length = OptionMatrices.averageLength(vrp);
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(numVehicles * length * length), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				for(int j = i+1; j < numVehicles; j++) {
+					exchangeMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);
+				}
+			}
+		});
+		indexMatrix();
+	}
+
+	/**
+	 * Order all entries of the upper half of the exchange matrix in the heap
+	 */
+	private void indexMatrix() {
+		best.reset(exchangeMatrix.length, exchangeMatrix.length);
+		for(int i = 0; i < numVehicles; i++) {
+			for(int j = i+1; j < numVehicles; j++) {
+				best.put(i, j, exchangeMatrix[i][j].getDelta());
 			}
 		}
 	}
 
+	/**
+	 * Pass the changed entries of a vehicle on to the heap
+	 * @param index int, the index of the vehicle
+	 */
+	private void indexVehicle(int index) {
+		for(int i = 0; i < index; i++) {
+			best.put(i, index, exchangeMatrix[i][index].getDelta());
+		}
+		for(int i = index+1; i < numVehicles; i++) {
+			best.put(index, i, exchangeMatrix[index][i].getDelta());
+		}
+	}
+
 	/**
 	 * Find the customer exchange between two vehicles that yields the biggest cost benefit
 	 * @param v1 Vehicle, the first vehicle that is part of the swap
@@ -51,42 +140,60 @@ public class ExchangeOperation implements Operation {
 		//create a default exchange option
 		ExchangeOption bestExchange = new ExchangeOption(v1, v2, null, null, 0,this);
 
-		//set up the encapsulating customers
-		Customer cV1Pred = v1.getFirstCustomer();
-		Customer cV1Succ = cV1Pred.getSucc();
-		Customer cV2Pred = v2.getFirstCustomer();
-		Customer cV2Succ = cV2Pred.getSucc();
+		//skip vehicles that are too far apart
+		if(pruningMargin >= 0 && !v1.isNear(v2, pruningMargin)) {
+			return bestExchange;
+		}
 
-		//Iterate through the customers from the first vehicle
-		Customer cV1 = v1.getFirstCustomer().getSucc();
-		while(!cV1.equals(v1.getLastCustomer())) {
+		//Iterate through the customers from the first vehicle by their positions
+		int length1 = v1.getRouteLength();
+		int length2 = v2.getRouteLength();
+		Segment newRoute = new Segment();
+		CandidatePositions positions = candidates == null ? null : new CandidatePositions();
+		int[] demand = vrp.getInstance().getDemands();
+		for(int p1 = 1; p1 <= length1; p1++) {
 
 			//get the encapsulating customers for c1
-			cV1Pred = cV1.getPred();
-			cV1Succ = cV1.getSucc();
+			Customer cV1Pred = v1.getCustomerAt(p1 - 1);
+			Customer cV1 = v1.getCustomerAt(p1);
+			Customer cV1Succ = v1.getCustomerAt(p1 + 1);
 
-			//check the exchange with every customer from the second vehicle
-			Customer cV2 = v2.getFirstCustomer().getSucc();
-			while(!cV2.equals(v2.getLastCustomer())) {
+			//check the exchange with every customer from the second vehicle, in granular mode the customers are collected
+			//from the candidates, unless an edge to the depot is created anyway or the tour is shorter than the lists of candidates
+			boolean collect = candidates != null && cV1Pred.getIndex() != 0 && cV1Succ.getIndex() != 0
+					&& candidates.getDegree(cV1Pred.getIndex()) + candidates.getDegree(cV1Succ.getIndex()) + 2 * candidates.getDegree(cV1.getIndex()) < length2;
+			int count = collect ? exchangePositions(v1, p1, v2, positions) : length2;
+			for(int r = 0; r < count; r++) {
+				int p2 = collect ? positions.get(r) : r + 1;
 
 				//get the encapsulating customers for c2
-				cV2Pred = cV2.getPred();
-				cV2Succ = cV2.getSucc();
+				Customer cV2Pred = v2.getCustomerAt(p2 - 1);
+				Customer cV2 = v2.getCustomerAt(p2);
+				Customer cV2Succ = v2.getCustomerAt(p2 + 1);
+
+				//in granular mode at least one of the new edges has to be a candidate edge
+				boolean granular = collect || isCandidate(cV1Pred, cV2) || isCandidate(cV2, cV1Succ) || isCandidate(cV2Pred, cV1) || isCandidate(cV1, cV2Succ);
+
+				//reject arcs that can never be feasible before checking the time windows of both new tours
+				boolean compatible = vrp.canFollow(cV2Pred.getIndex(), cV1.getIndex()) && vrp.canFollow(cV1.getIndex(), cV2Succ.getIndex())
+						&& vrp.canFollow(cV1Pred.getIndex(), cV2.getIndex()) && vrp.canFollow(cV2.getIndex(), cV1Succ.getIndex());
 
 				//make sure the exchange does not violate time window constraints
-				if(cV1.canBeInsertedBetween(cV2Pred, cV2Succ) && cV2.canBeInsertedBetween(cV1Pred, cV1Succ)) {
+				if(granular && compatible && v2.canReplace(p2 - 1, p2 + 1, cV1, newRoute) && v1.canReplace(p1 - 1, p1 + 1, cV2, newRoute)) {
 
 					//ensure that the vehicles possess the capacity for the exchange
-					if((v1.getLoad()-cV1.getDemand()+cV2.getDemand())<=v1.getCapacity() && (v2.getLoad()-cV2.getDemand()+cV1.getDemand())<=v2.getCapacity()) {
+					int d1 = demand[cV1.getIndex()];
+					int d2 = demand[cV2.getIndex()];
+					if((v1.getLoad()-d1+d2)<=v1.getCapacity() && (v2.getLoad()-d2+d1)<=v2.getCapacity()) {
 						//get the change in distance for v1
 						double deltaDistV1 = 
-								- vrp.distance(cV1Pred, cV1) - vrp.distance(cV1, cV1Succ)
-								+ vrp.distance(cV1Pred, cV2) + vrp.distance(cV2, cV1Succ);
+								- vrp.distance(cV1Pred.getIndex(), cV1.getIndex()) - vrp.distance(cV1.getIndex(), cV1Succ.getIndex())
+								+ vrp.distance(cV1Pred.getIndex(), cV2.getIndex()) + vrp.distance(cV2.getIndex(), cV1Succ.getIndex());
 
 						//get the change in distance for v2
 						double deltaDistV2 =  
-								- vrp.distance(cV2Pred, cV2) - vrp.distance(cV2, cV2Succ)
-								+ vrp.distance(cV2Pred, cV1) + vrp.distance(cV1, cV2Succ);
+								- vrp.distance(cV2Pred.getIndex(), cV2.getIndex()) - vrp.distance(cV2.getIndex(), cV2Succ.getIndex())
+								+ vrp.distance(cV2Pred.getIndex(), cV1.getIndex()) + vrp.distance(cV1.getIndex(), cV2Succ.getIndex());
 
 						//catch computational inaccuracy
 						if(Math.abs(deltaDistV1+deltaDistV2) < EPSILON) {
@@ -103,32 +210,20 @@ public class ExchangeOperation implements Operation {
 						}
 					}
 				}
-
-				//move on to the next customer of vehicle two
-				cV2 = cV2.getSucc();
 			}
-
-			//move on to the next vehicle of customer one
-			cV1 = cV1.getSucc();
 		}
 		return bestExchange;
 	}
 
 	/**
-	 * Retrieves the best exchange option from the exchange matrix
+	 * Retrieves the best exchange option from the exchange matrix, which is held at the top of the heap
 	 * @return ExchangeOption, the option with the greatest cost reduction
 	 */
 	public Option fetchBestOption() {
-		Option bestExchange = exchangeMatrix[0][1];
-		for(int i = 0 ; i < numCustomers ; i++) {
-			for(int j = i+1; j < numCustomers; j++) {
-				Option curExch = exchangeMatrix[i][j];
-				if(curExch.getDelta() < bestExchange.getDelta()) {
-					bestExchange = curExch;
-				}
-			}
+		if(best.isEmpty()) {
+			return exchangeMatrix[0][1];
 		}
-		return bestExchange;
+		return exchangeMatrix[best.peekRow()][best.peekColumn()];
 	}
 
 	/**
@@ -137,16 +232,16 @@ public class ExchangeOperation implements Operation {
 	 */
 	public void executeOption(Option bE) {
 		//obtain information of customer from vehicle 1
-		Customer c1		= bE.getC1();
-		Customer c1Pred = c1.getPred();
-		Customer c1Succ = c1.getSucc();
 		Vehicle v1 = bE.getV1();
+		Customer c1		= bE.getC1();
+		Customer c1Pred = v1.getPredecessor(c1);
+		Customer c1Succ = v1.getSuccessor(c1);
 
 		//obtain information of customer from vehicle 2
-		Customer c2		= bE.getC2();
-		Customer c2Pred = c2.getPred();
-		Customer c2Succ = c2.getSucc();
 		Vehicle v2 = bE.getV2();
+		Customer c2		= bE.getC2();
+		Customer c2Pred = v2.getPredecessor(c2);
+		Customer c2Succ = v2.getSuccessor(c2);
 
 		if(v1.remove(c1)) {
 			if(v2.remove(c2)) {
@@ -169,21 +264,91 @@ public class ExchangeOperation implements Operation {
 	public void updateOptionMatrix(Vehicle v1, Vehicle v2){
 		int indV1 = v1.getIndex();
 		int indV2 = v2.getIndex();
-		for(int i = 0; i < numCustomers; i++) {
-			Vehicle cV = vrp.getVehicle()[i];
-			//only consider inter-route changes and one way swapping
-			if(indV1 < i) {
-				exchangeMatrix[indV1][i] = findBestOption(v1, cV);
-			}
-			else if(indV1 > i) {
-				exchangeMatrix[i][indV1] = findBestOption(v1, cV);
-			}
-			if(indV2 < i) {
-				exchangeMatrix[indV2][i] = findBestOption(v2, cV);		
-			}
-			else if(indV2 > i) {
-				exchangeMatrix[i][indV2] = findBestOption(v2, cV);		
+		vrp.prepareEvaluation();
+		//the entries of the other vehicles are independent of each other and are evaluated in parallel
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(OptionMatrices.updateWork(vrp, v1, v2)), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				if(i != indV1 && i != indV2) {
+					updateEntries(v1, v2, i);
+				}
 			}
+		});
+		//the entry between the two vehicles is written twice, so it is evaluated last and in order
+		updateEntries(v1, v2, Math.min(indV1, indV2));
+		if(indV1 != indV2) {
+			updateEntries(v1, v2, Math.max(indV1, indV2));
+		}
+		//only the entries of the two vehicles changed
+		indexVehicle(indV1);
+		if(indV1 != indV2) {
+			indexVehicle(indV2);
+		}
+	}
+
+	/**
+	 * Recalculate the entries between the vehicles that were affected by a change and another vehicle
+	 * @param v1 Vehicle, the first vehicle that was involved in the change
+	 * @param v2 Vehicle, the second vehicle that was involved in the change
+	 * @param i int, the index of the other vehicle
+	 */
+	private void updateEntries(Vehicle v1, Vehicle v2, int i) {
+		int indV1 = v1.getIndex();
+		int indV2 = v2.getIndex();
+		Vehicle cV = vrp.getVehicle()[i];
+		//only consider inter-route changes and one way swapping, entries of unchanged vehicles are kept
+		if(indV1 < i) {
+			exchangeMatrix[indV1][i] = OptionMatrices.refresh(exchangeMatrix[indV1][i], this, v1, cV);
+		}
+		else if(indV1 > i) {
+			exchangeMatrix[i][indV1] = OptionMatrices.refresh(exchangeMatrix[i][indV1], this, v1, cV);
+		}
+		if(indV2 < i) {
+			exchangeMatrix[indV2][i] = OptionMatrices.refresh(exchangeMatrix[indV2][i], this, v2, cV);
+		}
+		else if(indV2 > i) {
+			exchangeMatrix[i][indV2] = OptionMatrices.refresh(exchangeMatrix[i][indV2], this, v2, cV);
+		}
+	}
+
+	/**
+	 * Adapt the exchange matrix after a vehicle was removed from the fleet
+	 * @param index int, the index of the removed vehicle, which is now held by the former last vehicle
+	 */
+	public void removeVehicle(int index) {
+		numVehicles--;
+		if(index < numVehicles) {
+			OptionMatrices.moveLast(exchangeMatrix, numVehicles, index);
+		}
+		exchangeMatrix = OptionMatrices.fit(exchangeMatrix, numVehicles);
+		if(exchangeMatrix.length != best.getRows()) {
+			indexMatrix();
+			return;
+		}
+		//drop the entries of the former last vehicle
+		for(int i = 0; i < numVehicles; i++) {
+			best.remove(i, numVehicles);
+		}
+		if(index < numVehicles) {
+			indexVehicle(index);
+		}
+	}
+
+	/**
+	 * Extend the exchange matrix by a vehicle that was added at the end of the fleet
+	 * @param v Vehicle, the new vehicle
+	 */
+	public void addVehicle(Vehicle v) {
+		int index = v.getIndex();
+		numVehicles++;
+		exchangeMatrix = OptionMatrices.fit(exchangeMatrix, numVehicles);
+		for(int i = 0; i < index; i++) {
+			exchangeMatrix[i][index] = findBestOption(vrp.getVehicle()[i], v);
+		}
+		if(exchangeMatrix.length != best.getRows()) {
+			indexMatrix();
+		}
+		else {
+			indexVehicle(index);
 		}
 	}
 }
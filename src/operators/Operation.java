@@ -21,6 +21,19 @@ public interface Operation {
 	 */
 	public void updateOptionMatrix(Vehicle v1, Vehicle v2);
 
+	/**
+	 * Adapt the option matrix after a vehicle was removed from the fleet,
+	 * i.e. the former last vehicle of the fleet now holds the index of the removed one
+	 * @param index int, the index of the removed vehicle
+	 */
+	public void removeVehicle(int index);
+
+	/**
+	 * Extend the option matrix by a vehicle that was added at the end of the fleet
+	 * @param v Vehicle, the new vehicle
+	 */
+	public void addVehicle(Vehicle v);
+
 	/**
 	 * Find the best option to execute including two vehicles
 	 * @param v1 Vehicle, the first vehicle of interest
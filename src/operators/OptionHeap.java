@@ -0,0 +1,164 @@
+package operators;
+import java.util.Arrays;
+
+/**
+ * Indexed binary heap over the entries of an option matrix, keyed by the delta of the options.
+ * The entry (i,j) of a matrix with dim columns is held as the slot i*dim+j, a vector is held as a matrix with one column.
+ * Changing the delta of an entry takes O(log n) and the best entry can be looked up in O(1) instead of scanning the whole matrix.
+ * Entries with the same delta are ordered by their slot, so the best entry is the first one a scan
+ * of the matrix row by row would find.
+ * @author Tom Decke
+ *
+ */
+final class OptionHeap {
+
+	private int rows; // number of rows of the indexed matrix
+	private int dim; // number of columns of the indexed matrix
+	private int[] heap = new int[0]; // the slots in heap order
+	private int size; // number of entries in the heap
+	private int[] place = new int[0]; // position of each slot in the heap, -1 if it is not in the heap
+	private double[] key = new double[0]; // delta of each slot
+
+	/**
+	 * Empty the heap and prepare it for a matrix of the given size
+	 * @param rows int, the number of rows of the matrix
+	 * @param columns int, the number of columns of the matrix, 1 for a vector
+	 */
+	void reset(int rows, int columns) {
+		this.rows = rows;
+		this.dim = columns;
+		int slots = rows * columns;
+		if(place.length < slots) {
+			heap = new int[slots];
+			place = new int[slots];
+			key = new double[slots];
+		}
+		Arrays.fill(place, -1);
+		size = 0;
+	}
+
+	/**
+	 * Accessor for the number of rows of the matrix the heap was prepared for
+	 * @return int, the number of rows
+	 */
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Insert an entry or change its delta
+	 * @param i int, the row of the entry
+	 * @param j int, the column of the entry
+	 * @param delta double, the delta of the option held by the entry
+	 */
+	void put(int i, int j, double delta) {
+		int slot = i * dim + j;
+		int pos = place[slot];
+		key[slot] = delta;
+		if(pos < 0) {
+			pos = size++;
+			heap[pos] = slot;
+			place[slot] = pos;
+		}
+		//the key may have moved either way
+		siftDown(siftUp(pos));
+	}
+
+	/**
+	 * Remove an entry, nothing happens if it is not in the heap
+	 * @param i int, the row of the entry
+	 * @param j int, the column of the entry
+	 */
+	void remove(int i, int j) {
+		int slot = i * dim + j;
+		int pos = place[slot];
+		if(pos < 0) {
+			return;
+		}
+		place[slot] = -1;
+		size--;
+		if(pos < size) {
+			//fill the gap with the last entry
+			heap[pos] = heap[size];
+			place[heap[pos]] = pos;
+			siftDown(siftUp(pos));
+		}
+	}
+
+	/**
+	 * Check if the heap holds no entry
+	 * @return boolean, true if the heap is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Accessor for the row of the best entry
+	 * @return int, the row of the entry with the lowest delta, the heap must not be empty
+	 */
+	int peekRow() {
+		return heap[0] / dim;
+	}
+
+	/**
+	 * Accessor for the column of the best entry
+	 * @return int, the column of the entry with the lowest delta, the heap must not be empty
+	 */
+	int peekColumn() {
+		return heap[0] % dim;
+	}
+
+	/**
+	 * Move an entry towards the root as long as it is better than its parent
+	 * @param pos int, the position of the entry in the heap
+	 * @return int, the new position of the entry
+	 */
+	private int siftUp(int pos) {
+		int slot = heap[pos];
+		while(pos > 0) {
+			int parent = (pos - 1) / 2;
+			if(!isBetter(slot, heap[parent])) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			place[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = slot;
+		place[slot] = pos;
+		return pos;
+	}
+
+	/**
+	 * Move an entry towards the leaves as long as one of its children is better
+	 * @param pos int, the position of the entry in the heap
+	 */
+	private void siftDown(int pos) {
+		int slot = heap[pos];
+		while(2 * pos + 1 < size) {
+			int child = 2 * pos + 1;
+			if(child + 1 < size && isBetter(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if(!isBetter(heap[child], slot)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			place[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = slot;
+		place[slot] = pos;
+	}
+
+	/**
+	 * Compare two entries by their delta and, if it is the same, by their slot
+	 * @param a int, the slot of the first entry
+	 * @param b int, the slot of the second entry
+	 * @return boolean, true if the first entry comes before the second one
+	 */
+	private boolean isBetter(int a, int b) {
+		return key[a] < key[b] || (key[a] == key[b] && a < b);
+	}
+}
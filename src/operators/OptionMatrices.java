@@ -0,0 +1,135 @@
+package operators;
+import moves.Option;
+import representation.VRP;
+import representation.Vehicle;
+
+/**
+ * Helper for option matrices whose dimension follows the number of vehicles in the fleet
+ * @author Tom Decke
+ *
+ */
+final class OptionMatrices {
+
+	/**the number of evaluated pairs of positions that is worth a task of its own*/
+	private static final long MIN_TASK_WORK = 1 << 15;
+
+	private OptionMatrices() {
+	}
+
+	/**
+	 * Determine the smallest number of rows that is evaluated by one task from the work per row.
+	 * Cheap rows are grouped into larger blocks, so that small fleets are evaluated sequentially instead of forking a task per row.
+	 * @param pairsPerRow long, the estimated number of pairs of positions that are evaluated for one row
+	 * @return int, the smallest number of rows per task, at least 1
+	 */
+	static int minBlock(long pairsPerRow) {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(1, MIN_TASK_WORK / Math.max(1, pairsPerRow)));
+	}
+
+	/**
+	 * Estimate the number of positions of an average tour, including the depot at both ends
+	 * @param vrp VRP, the problem the tours belong to
+	 * @return long, the average number of positions per vehicle
+	 */
+	static long averageLength(VRP vrp) {
+		return vrp.getN() / Math.max(1, vrp.getNumVehicles()) + 2;
+	}
+
+	/**
+	 * Estimate the work per row of updating the options of the other vehicles with two changed vehicles
+	 * @param vrp VRP, the problem the tours belong to
+	 * @param v1 Vehicle, the first changed vehicle
+	 * @param v2 Vehicle, the second changed vehicle
+	 * @return long, the estimated number of pairs of positions that are evaluated for one row
+	 */
+	static long updateWork(VRP vrp, Vehicle v1, Vehicle v2) {
+		return averageLength(vrp) * (v1.getRouteLength() + v2.getRouteLength() + 4);
+	}
+
+	/**
+	 * Make sure that a matrix can hold the options for a number of vehicles.
+	 * The matrix grows with some reserve and shrinks once less than half of it is used.
+	 * @param matrix Option[][], the current matrix, or null
+	 * @param size int, the number of vehicles
+	 * @return Option[][], a matrix containing the options of the current one
+	 */
+	static Option[][] fit(Option[][] matrix, int size) {
+		if(matrix != null && matrix.length >= size && matrix.length <= 2 * size + 1) {
+			return matrix;
+		}
+		int capacity = size + size / 4 + 1;
+		Option[][] fitted = new Option[capacity][capacity];
+		if(matrix != null) {
+			int keep = Math.min(capacity, matrix.length);
+			for(int i = 0; i < keep; i++) {
+				System.arraycopy(matrix[i], 0, fitted[i], 0, keep);
+			}
+		}
+		return fitted;
+	}
+
+	/**
+	 * Make sure that a vector can hold the options for a number of vehicles
+	 * @param vector Option[], the current vector, or null
+	 * @param size int, the number of vehicles
+	 * @return Option[], a vector containing the options of the current one
+	 */
+	static Option[] fit(Option[] vector, int size) {
+		if(vector != null && vector.length >= size && vector.length <= 2 * size + 1) {
+			return vector;
+		}
+		Option[] fitted = new Option[size + size / 4 + 1];
+		if(vector != null) {
+			System.arraycopy(vector, 0, fitted, 0, Math.min(fitted.length, vector.length));
+		}
+		return fitted;
+	}
+
+	/**
+	 * Keep an option if neither of its vehicles changed since it was determined, otherwise determine it again
+	 * @param current Option, the option held by the matrix, or null
+	 * @param op Operation, the operation the matrix belongs to
+	 * @param v1 Vehicle, the first vehicle for findBestOption
+	 * @param v2 Vehicle, the second vehicle for findBestOption
+	 * @return Option, the up to date option
+	 */
+	static Option refresh(Option current, Operation op, Vehicle v1, Vehicle v2) {
+		if(current != null && current.isCurrentFor(v1, v2)) {
+			return current;
+		}
+		return op.findBestOption(v1, v2);
+	}
+
+	/**
+	 * Move the row and the column of one vehicle to another index of a full matrix
+	 * @param matrix Option[][], the matrix, where matrix[i][j] holds the option from vehicle i to vehicle j
+	 * @param from int, the old index of the vehicle
+	 * @param to int, the new index of the vehicle
+	 * @param size int, the number of vehicles before the move
+	 */
+	static void move(Option[][] matrix, int from, int to, int size) {
+		for(int i = 0; i < size; i++) {
+			matrix[to][i] = matrix[from][i];
+		}
+		for(int i = 0; i < size; i++) {
+			matrix[i][to] = matrix[i][from];
+		}
+	}
+
+	/**
+	 * Move the options of the last vehicle to another index of an upper triangular matrix
+	 * @param matrix Option[][], the matrix, where matrix[i][j] with i < j holds the option for vehicles i and j
+	 * @param from int, the old index of the vehicle, which is the last one
+	 * @param to int, the new index of the vehicle
+	 */
+	static void moveLast(Option[][] matrix, int from, int to) {
+		for(int i = 0; i < from; i++) {
+			if(i < to) {
+				matrix[i][to] = matrix[i][from];
+			}
+			else if(i > to) {
+				matrix[to][i] = matrix[i][from];
+			}
+		}
+	}
+}
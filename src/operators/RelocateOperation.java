@@ -1,7 +1,11 @@
 package operators;
 import moves.Option;
 import moves.RelocateOption;
+import representation.CandidateList;
 import representation.Customer;
+import representation.ParallelRows;
+import representation.ProblemInstance;
+import representation.Segment;
 import representation.VRP;
 import representation.Vehicle;
 
@@ -14,32 +18,122 @@ public class RelocateOperation implements Operation{
 
 	private final double EPSILON = 1E-10;
 	private VRP vrp;
-	private int numCustomers;
+	private int numVehicles; // dimension of the option matrix, which follows the fleet
 	private Option[][] relocateMatrix;
+	private OptionHeap best = new OptionHeap(); // the entries of the relocate matrix ordered by their delta
+	private CandidateList candidates; // restricts the moves to candidate edges, null if all moves are evaluated
+	private double pruningMargin = -1; // vehicle pairs whose tours are further apart are skipped, negative to evaluate all pairs
+	//buffers of the evaluation, one per thread, as the rows of the matrix are evaluated in parallel
+	private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+	/**
+	 * Buffers that are reused by the evaluation of one thread, so that its inner loops do not allocate
+	 */
+	private static class Scratch {
+		private boolean[] feasible = new boolean[0]; // results of feasibleShifts, grows with the longest tour
+		private final Segment passed = new Segment();
+		private final Segment single = new Segment();
+		private final Segment newRoute = new Segment();
+		private final CandidatePositions positions = new CandidatePositions(); // insertion positions of the granular neighbourhood
+	}
 
 	/**
 	 * Constructor for the relocate operator
 	 * @param vrp VRP, the VRP to which the operation is to be applied
-	 * @param numCustomers int, the number of customers in the VRP
 	 */
-	public RelocateOperation(VRP vrp, int numCustomers) {
+	public RelocateOperation(VRP vrp) {
 		this.vrp = vrp;
-		this.numCustomers = numCustomers;
-		this.relocateMatrix = new RelocateOption[numCustomers][numCustomers];
+	}
+
+	/**
+	 * Restrict the operation to moves which create at least one edge between a customer and one of its k nearest customers
+	 * @param k int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @param timeWindows boolean, whether or not candidates with incompatible time windows are to be excluded
+	 */
+	public void setGranular(int k, boolean timeWindows) {
+		candidates = k > 0 ? vrp.getCandidates(k, timeWindows) : null;
+	}
+
+	/**
+	 * Skip pairs of vehicles whose tours are far apart, i.e. the bounding boxes of their customers
+	 * do not overlap when enlarged by the given margin
+	 * @param margin double, the margin, or a negative value to evaluate all pairs of vehicles
+	 */
+	public void setSpatialPruning(double margin) {
+		this.pruningMargin = margin;
+	}
+
+	/**
+	 * Check in O(1) if an edge is allowed to be created in the current mode
+	 * @param c1 Customer, the first customer of the edge
+	 * @param c2 Customer, the second customer of the edge
+	 * @return boolean, true if all moves are evaluated or the edge is a candidate edge
+	 */
+	private boolean isCandidate(Customer c1, Customer c2) {
+		return candidates == null || candidates.isCandidate(c1.getIndex(), c2.getIndex());
+	}
+
+	/**
+	 * Collect the positions of a tour after which the insertion of a customer creates a candidate edge,
+	 * i.e. the positions next to the depot and next to the customers that share a candidate edge with the customer
+	 * @param c int, index of the customer to insert
+	 * @param v Vehicle, the vehicle of the tour
+	 * @param positions CandidatePositions, receives the positions
+	 * @return int, the number of positions
+	 */
+	private int insertionPositions(int c, Vehicle v, CandidatePositions positions) {
+		int length = v.getRouteLength();
+		positions.clear();
+		positions.add(0);
+		positions.add(length);
+		//the customer is inserted before or after an adjacent customer at position q
+		positions.addAdjacent(candidates, c, v, vrp.getPositions(), -1, 0, length);
+		positions.addAdjacent(candidates, c, v, vrp.getPositions(), 0, 0, length);
+		return positions.sort();
 	}
 
 	/**
 	 * Create the matrix containing the best moves from one vehicle to another
 	 */
 	public void createOptionMatrix() {
-		//go through the matrix and determine the best move for each combination 
-		for(int i = 0; i < numCustomers; i++) {
-			for(int j = 0; j < numCustomers; j++) {
-				relocateMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);			
+		numVehicles = vrp.getNumVehicles();
+		relocateMatrix = OptionMatrices.fit(relocateMatrix, numVehicles);
+		vrp.prepareEvaluation();
+		//go through the matrix and determine the best move for each combination, the rows are evaluated in parallel
+		long length = OptionMatrices.averageLength(vrp);
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(numVehicles * length * length), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				for(int j = 0; j < numVehicles; j++) {
+					relocateMatrix[i][j] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[j]);
+				}
+			}
+		});
+		indexMatrix();
+	}
+
+	/**
+	 * Order all entries of the relocate matrix in the heap
+	 */
+	private void indexMatrix() {
+		best.reset(relocateMatrix.length, relocateMatrix.length);
+		for(int i = 0; i < numVehicles; i++) {
+			for(int j = 0; j < numVehicles; j++) {
+				best.put(i, j, relocateMatrix[i][j].getDelta());
 			}
 		}
 	}
 
+	/**
+	 * Pass the changed entries in the row and the column of a vehicle on to the heap
+	 * @param index int, the index of the vehicle
+	 */
+	private void indexVehicle(int index) {
+		for(int i = 0; i < numVehicles; i++) {
+			best.put(index, i, relocateMatrix[index][i].getDelta());
+			best.put(i, index, relocateMatrix[i][index].getDelta());
+		}
+	}
+
 	/**
 	 * Find customer who's relocation to another vehicle would have the highest benefit
 	 * @param vFrom Vehicle, vehicle from which a customer is to be taken
@@ -61,15 +155,22 @@ public class RelocateOperation implements Operation{
 		//thus prevent the moving of one customer to another vehicle if there would be no benefit
 		RelocateOption bestToMove = new RelocateOption(null, 0, vFrom, vTo,this);
 
+		//skip vehicles that are too far apart
+		if(pruningMargin >= 0 && !vFrom.isNear(vTo, pruningMargin)) {
+			return bestToMove;
+		}
 
-		//start checking from the first customer, who is not the depot-connection
-		Customer cFrom = vFrom.getFirstCustomer().getSucc();
-		Customer cFPred = cFrom.getPred();
-		Customer cFSucc = cFrom.getSucc();
-		while(!cFrom.equals(vFrom.getLastCustomer())) {
+
+		//go through the positions of the customers, omitting the depot-connections
+		int fromLength = vFrom.getRouteLength();
+		int toLength = vTo.getRouteLength();
+		Scratch buffers = scratch.get();
+		Segment newRoute = buffers.newRoute;
+		for(int pFrom = 1; pFrom <= fromLength; pFrom++) {
 			
-			cFPred = cFrom.getPred();
-			cFSucc = cFrom.getSucc();
+			Customer cFPred = vFrom.getCustomerAt(pFrom - 1);
+			Customer cFrom = vFrom.getCustomerAt(pFrom);
+			Customer cFSucc = vFrom.getCustomerAt(pFrom + 1);
 			
 
 			//if the vehicle can accommodate the customer find the best position for him
@@ -77,26 +178,36 @@ public class RelocateOperation implements Operation{
 
 
 				//determine how the total distance of vFrom would change
-				double newDistVFrom = vFrom.getDistance() + vrp.distance(cFPred, cFSucc) 
-				- vrp.distance(cFPred, cFrom)
-				- vrp.distance(cFrom, cFSucc);
+				double newDistVFrom = vFrom.getDistance() + vrp.distance(cFPred.getIndex(), cFSucc.getIndex()) 
+				- vrp.distance(cFPred.getIndex(), cFrom.getIndex())
+				- vrp.distance(cFrom.getIndex(), cFSucc.getIndex());
 
 				//catch computational inaccuracy
 				if(Math.abs(newDistVFrom) < EPSILON) {
 					newDistVFrom = 0;
 				}
 
-				Customer cToPred = vTo.getFirstCustomer();
-				Customer cToSucc = cToPred.getSucc();
-				while(!cToPred.equals(vTo.getLastCustomer())) {
+				//the time windows of moves within the vehicle depend on the customers in between
+				boolean[] feasible = sameVehicle ? feasibleShifts(vFrom, pFrom, buffers) : null;
+
+				//in granular mode the positions next to a candidate of the customer are collected from its candidates,
+				//unless the tour is shorter than the list of candidates, then every position is checked
+				boolean collect = candidates != null && candidates.getDegree(cFrom.getIndex()) < toLength;
+				int count = collect ? insertionPositions(cFrom.getIndex(), vTo, buffers.positions) : toLength + 1;
+				for(int r = 0; r < count; r++) {
+					int pTo = collect ? buffers.positions.get(r) : r;
+					Customer cToPred = vTo.getCustomerAt(pTo);
+					Customer cToSucc = vTo.getCustomerAt(pTo + 1);
 					// a customer can not be inserted before/after himself
-					if(!(cFrom.equals(cToPred)||cFrom.equals(cToSucc))) {
+					// and in granular mode he has to be inserted next to a candidate
+					if(!(cFrom.equals(cToPred)||cFrom.equals(cToSucc)) && (collect || isCandidate(cToPred, cFrom) || isCandidate(cFrom, cToSucc))) {
 
-						if(cFrom.canBeInsertedBetween(cToPred, cToSucc)) {
+						if(vrp.canFollow(cToPred.getIndex(), cFrom.getIndex()) && vrp.canFollow(cFrom.getIndex(), cToSucc.getIndex())
+								&& (sameVehicle ? feasible[pTo] : vTo.canReplace(pTo, pTo + 1, cFrom, newRoute))) {
 							//determine how the total distance of vTo would change
-							double newDistVTo = vTo.getDistance() - vrp.distance(cToPred, cToSucc)
-									+ vrp.distance(cToPred, cFrom)
-									+ vrp.distance(cFrom, cToSucc);
+							double newDistVTo = vTo.getDistance() - vrp.distance(cToPred.getIndex(), cToSucc.getIndex())
+									+ vrp.distance(cToPred.getIndex(), cFrom.getIndex())
+									+ vrp.distance(cFrom.getIndex(), cToSucc.getIndex());
 
 
 							//catch computational inaccuracy
@@ -109,12 +220,12 @@ public class RelocateOperation implements Operation{
 							
 							if(sameVehicle) {
 								resultingCost = (vTo.getDistance() 
-										+ vrp.distance(cFPred, cFSucc) 
-										+ vrp.distance(cToPred, cFrom)
-										+ vrp.distance(cFrom, cToSucc) 
-										- vrp.distance(cToPred, cToSucc)
-										- vrp.distance(cFPred, cFrom)
-										- vrp.distance(cFrom, cFSucc)) *vTo.getCostOfUse();
+										+ vrp.distance(cFPred.getIndex(), cFSucc.getIndex()) 
+										+ vrp.distance(cToPred.getIndex(), cFrom.getIndex())
+										+ vrp.distance(cFrom.getIndex(), cToSucc.getIndex()) 
+										- vrp.distance(cToPred.getIndex(), cToSucc.getIndex())
+										- vrp.distance(cFPred.getIndex(), cFrom.getIndex())
+										- vrp.distance(cFrom.getIndex(), cFSucc.getIndex())) *vTo.getCostOfUse();
 							}
 
 							//the change in cost
@@ -133,40 +244,77 @@ public class RelocateOperation implements Operation{
 							}
 						}
 					}
-					//move to the next spot where the customer could be inserted
-					cToPred = cToSucc;
-					cToSucc = cToSucc.getSucc();
 				}
 			}
-			
-			//go to the next customer
-			cFrom = cFrom.getSucc();
 		}
 		return bestToMove;
 	}
 
 	/**
-	 * Find the best relocation in the matrix of possible relocations
+	 * Check the time windows for all moves of a customer to another position of its own tour.
+	 * The customers that are passed by the move are collected in a growing segment, so that each position is checked in O(1).
+	 * @param v Vehicle, the vehicle of the customer
+	 * @param pFrom int, the position of the customer
+	 * @param buffers Scratch, the buffers of the current thread, whose newRoute is overwritten
+	 * @return boolean[], for each position p up to the length of the tour whether or not the customer can be moved between p and p+1,
+	 * the array is reused by the next call of the thread
+	 */
+	private boolean[] feasibleShifts(Vehicle v, int pFrom, Scratch buffers) {
+		int length = v.getRouteLength();
+		if(buffers.feasible.length < length + 1) {
+			buffers.feasible = new boolean[Math.max(length + 1, 2 * buffers.feasible.length)];
+		}
+		boolean[] feasible = buffers.feasible;
+		//moving the customer next to himself is no move
+		feasible[pFrom - 1] = false;
+		feasible[pFrom] = false;
+		Customer c = v.getCustomerAt(pFrom);
+		Segment passed = buffers.passed;
+		Segment single = buffers.single;
+		Segment newRoute = buffers.newRoute;
+		int[] route = v.getRoute();
+		ProblemInstance instance = vrp.getInstance();
+
+		//moves towards the start: prefix(p) + c + passed customers p+1..pFrom-1 + suffix(pFrom+1)
+		for(int p = pFrom - 2; p >= 0; p--) {
+			if(p == pFrom - 2) {
+				passed.set(instance, route[p + 1]);
+			}
+			else {
+				passed.concat(single.set(instance, route[p + 1]), vrp.distance(route[p + 1], route[p + 2]), passed);
+			}
+			newRoute.concat(passed, vrp.distance(route[pFrom - 1], route[pFrom + 1]), v.getSuffix(pFrom + 1));
+			newRoute.concat(single.set(instance, c.getIndex()), vrp.distance(c.getIndex(), route[p + 1]), newRoute);
+			newRoute.concat(v.getPrefix(p), vrp.distance(route[p], c.getIndex()), newRoute);
+			feasible[p] = newRoute.isFeasible();
+		}
+
+		//moves towards the end: prefix(pFrom-1) + passed customers pFrom+1..p + c + suffix(p+1)
+		for(int p = pFrom + 1; p <= length; p++) {
+			if(p == pFrom + 1) {
+				passed.set(instance, route[p]);
+			}
+			else {
+				passed.concat(passed, vrp.distance(route[p - 1], route[p]), single.set(instance, route[p]));
+			}
+			newRoute.concat(v.getPrefix(pFrom - 1), vrp.distance(route[pFrom - 1], route[pFrom + 1]), passed);
+			newRoute.concat(newRoute, vrp.distance(route[p], c.getIndex()), single.set(instance, c.getIndex()));
+			newRoute.concat(newRoute, vrp.distance(c.getIndex(), route[p + 1]), v.getSuffix(p + 1));
+			feasible[p] = newRoute.isFeasible();
+		}
+		return feasible;
+	}
+
+	/**
+	 * Find the best relocation in the matrix of possible relocations, which is held at the top of the heap.
+	 * Options without a customer to move have a delta of 0, so they are only found if no move improves the solution.
 	 * @return RelocateOption, the currently best move in the BMM
 	 */
 	public Option fetchBestOption() {
-		//start comparing with the origin of the matrix
-		Option bestMove = relocateMatrix[0][0];
-		double minCost = bestMove.getDelta();
-
-		Option currentMove = bestMove;
-		//go through the matrix and find the move with minimal cost
-		for(int i = 0; i < numCustomers; i++ ) {
-			for(int j = 0; j < numCustomers; j++) {
-				currentMove = relocateMatrix[i][j];
-				double currentCost = currentMove.getDelta();
-				if(currentMove.getCToMove()!=null && currentCost < minCost) {
-					minCost = currentCost;
-					bestMove = currentMove;
-				}
-			}
+		if(best.isEmpty()) {
+			return relocateMatrix[0][0];
 		}
-		return bestMove;
+		return relocateMatrix[best.peekRow()][best.peekColumn()];
 	}
 
 	/**
@@ -190,15 +338,91 @@ public class RelocateOperation implements Operation{
 	 * @param vTo Vehicle, vehicle to which a customer was moved
 	 */
 	public void updateOptionMatrix(Vehicle vFrom, Vehicle vTo) {
-		for(int i = 0; i < numCustomers; i++) {
-			Vehicle vCheck = vrp.getVehicle()[i];
-			//recalculate the giving and receiving of the first vehicle
-			relocateMatrix[vFrom.getIndex()][i] = findBestOption(vFrom, vCheck);
-			relocateMatrix[i][vFrom.getIndex()] = findBestOption(vCheck,vFrom);
+		int indFrom = vFrom.getIndex();
+		int indTo = vTo.getIndex();
+		vrp.prepareEvaluation();
+		//the entries of the other vehicles are independent of each other and are evaluated in parallel
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(2 * OptionMatrices.updateWork(vrp, vFrom, vTo)), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				if(i != indFrom && i != indTo) {
+					updateEntries(vFrom, vTo, i);
+				}
+			}
+		});
+		//the entries between the two vehicles are written twice, so they are evaluated last and in order
+		updateEntries(vFrom, vTo, Math.min(indFrom, indTo));
+		if(indFrom != indTo) {
+			updateEntries(vFrom, vTo, Math.max(indFrom, indTo));
+		}
+		//only the rows and columns of the two vehicles changed
+		indexVehicle(indFrom);
+		if(indFrom != indTo) {
+			indexVehicle(indTo);
+		}
+	}
+
+	/**
+	 * Recalculate the entries between the vehicles that were affected by a change and another vehicle
+	 * @param vFrom Vehicle, vehicle from which a customer was removed
+	 * @param vTo Vehicle, vehicle to which a customer was moved
+	 * @param i int, the index of the other vehicle
+	 */
+	private void updateEntries(Vehicle vFrom, Vehicle vTo, int i) {
+		Vehicle vCheck = vrp.getVehicle()[i];
+		//recalculate the giving and receiving of the first vehicle
+		int iFrom = vFrom.getIndex();
+		int iTo = vTo.getIndex();
+		//entries whose vehicles did not change since they were determined are kept
+		relocateMatrix[iFrom][i] = OptionMatrices.refresh(relocateMatrix[iFrom][i], this, vFrom, vCheck);
+		relocateMatrix[i][iFrom] = OptionMatrices.refresh(relocateMatrix[i][iFrom], this, vCheck, vFrom);
+
+		//recalculate the giving and receiving of the second vehicle
+		relocateMatrix[i][iTo] = OptionMatrices.refresh(relocateMatrix[i][iTo], this, vCheck, vTo);
+		relocateMatrix[iTo][i] = OptionMatrices.refresh(relocateMatrix[iTo][i], this, vTo, vCheck);
+	}
 
-			//recalculate the giving and receiving of the second vehicle
-			relocateMatrix[i][vTo.getIndex()] = findBestOption(vCheck, vTo);
-			relocateMatrix[vTo.getIndex()][i] = findBestOption(vFrom, vCheck);
+	/**
+	 * Adapt the relocate matrix after a vehicle was removed from the fleet
+	 * @param index int, the index of the removed vehicle, which is now held by the former last vehicle
+	 */
+	public void removeVehicle(int index) {
+		numVehicles--;
+		if(index < numVehicles) {
+			OptionMatrices.move(relocateMatrix, numVehicles, index, numVehicles+1);
+		}
+		relocateMatrix = OptionMatrices.fit(relocateMatrix, numVehicles);
+		if(relocateMatrix.length != best.getRows()) {
+			indexMatrix();
+			return;
+		}
+		//drop the row and the column of the former last vehicle
+		for(int i = 0; i <= numVehicles; i++) {
+			best.remove(numVehicles, i);
+			best.remove(i, numVehicles);
+		}
+		if(index < numVehicles) {
+			indexVehicle(index);
+		}
+	}
+
+	/**
+	 * Extend the relocate matrix by a vehicle that was added at the end of the fleet
+	 * @param v Vehicle, the new vehicle
+	 */
+	public void addVehicle(Vehicle v) {
+		int index = v.getIndex();
+		numVehicles++;
+		relocateMatrix = OptionMatrices.fit(relocateMatrix, numVehicles);
+		for(int i = 0; i < numVehicles; i++) {
+			Vehicle vCheck = vrp.getVehicle()[i];
+			relocateMatrix[index][i] = findBestOption(v, vCheck);
+			relocateMatrix[i][index] = findBestOption(vCheck, v);
+		}
+		if(relocateMatrix.length != best.getRows()) {
+			indexMatrix();
+		}
+		else {
+			indexVehicle(index);
 		}
 	}
 
@@ -210,17 +434,17 @@ public class RelocateOperation implements Operation{
 		//create the top line of the matrix with vehicle-id's
 		String format = "\\ |";
 		System.out.print(String.format("%4s",format));
-		for(int i = 0 ; i < numCustomers; i++) {
+		for(int i = 0 ; i < numVehicles; i++) {
 			format = "v"+vrp.getVehicle()[i].getId()+"|";
 			System.out.print(String.format("%4s", format));
 		}
 		System.out.println("");
 
 		//print the move options line by line
-		for(int j = 0 ; j< numCustomers ; j++) {
+		for(int j = 0 ; j< numVehicles ; j++) {
 			format = "v"+vrp.getVehicle()[j].getId()+"|";
 			System.out.print(String.format("%4s", format));
-			for(int k = 0; k<numCustomers;k++) {
+			for(int k = 0; k<numVehicles;k++) {
 				Customer current = relocateMatrix[j][k].getCToMove();
 				if (current == null) {
 					System.out.print(String.format("%4s","X |"));
@@ -4,9 +4,13 @@ import java.util.ArrayList;
 
 import moves.Option;
 import moves.TwoOptOption;
+import representation.CandidateList;
 import representation.Customer;
+import representation.ParallelRows;
+import representation.Segment;
 import representation.VRP;
 import representation.Vehicle;
+import representation.Violation;
 
 /**
  * Class to represent the 2-opt operator
@@ -18,19 +22,55 @@ public class TwoOptOperation implements Operation{
 	private static final double EPSILON = 1E-10;
 
 	private VRP vrp;
-	private int numCustomers;
+	private int numVehicles; // dimension of the option matrix, which follows the fleet
 	private Option[] twoOptMatrix;
+	private OptionHeap best = new OptionHeap(); // the entries of the twoOptMatrix ordered by their delta
+	private CandidateList candidates; // restricts the moves to candidate edges, null if all moves are evaluated
 
 
 	/**
 	 * Constructor for the 2-opt operation
 	 * @param vrp VRP, the VRP to which the operation is to be applied
-	 * @param numCustomers int, the number of customers in the VRP
 	 */
-	public TwoOptOperation(VRP vrp, int numCustomers) {
+	public TwoOptOperation(VRP vrp) {
 		this.vrp = vrp;
-		this.numCustomers = numCustomers;
-		this.twoOptMatrix = new Option[numCustomers];
+	}
+
+	/**
+	 * Restrict the operation to moves which create at least one edge between a customer and one of its k nearest customers
+	 * @param k int, the number of candidates per customer, or 0 to evaluate all moves
+	 * @param timeWindows boolean, whether or not candidates with incompatible time windows are to be excluded
+	 */
+	public void setGranular(int k, boolean timeWindows) {
+		candidates = k > 0 ? vrp.getCandidates(k, timeWindows) : null;
+	}
+
+	/**
+	 * Check in O(1) if an edge is allowed to be created in the current mode
+	 * @param c1 Customer, the first customer of the edge
+	 * @param c2 Customer, the second customer of the edge
+	 * @return boolean, true if all moves are evaluated or the edge is a candidate edge
+	 */
+	private boolean isCandidate(Customer c1, Customer c2) {
+		return candidates == null || candidates.isCandidate(c1.getIndex(), c2.getIndex());
+	}
+
+	/**
+	 * Collect the positions q of a tour for which the reversal of the positions p+1 to q creates a candidate edge,
+	 * i.e. the customer at q becomes adjacent to the one at p or the customer at q+1 becomes adjacent to the one at p+1
+	 * @param v Vehicle, the vehicle of the tour
+	 * @param p int, the position before the reversed part, which may not be the depot
+	 * @param positions CandidatePositions, receives the positions
+	 * @return int, the number of positions
+	 */
+	private int reversalPositions(Vehicle v, int p, CandidatePositions positions) {
+		int[] route = v.getRoute();
+		int length = v.getRouteLength();
+		positions.clear();
+		positions.add(length);
+		positions.addAdjacent(candidates, route[p], v, vrp.getPositions(), 0, p + 1, length);
+		positions.addAdjacent(candidates, route[p + 1], v, vrp.getPositions(), -1, p + 1, length);
+		return positions.sort();
 	}
 
 	/**
@@ -38,8 +78,26 @@ public class TwoOptOperation implements Operation{
 	 */
 	@Override
 	public void createOptionMatrix() {
-		for(int i = 0; i < numCustomers; i++) {
-			twoOptMatrix[i] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[i]);
+		numVehicles = vrp.getNumVehicles();
+		twoOptMatrix = OptionMatrices.fit(twoOptMatrix, numVehicles);
+		vrp.prepareEvaluation();
+		//the vehicles are evaluated in parallel
+		long length = OptionMatrices.averageLength(vrp);
+		ParallelRows.run(numVehicles, OptionMatrices.minBlock(length * length), (from, to) -> {
+			for(int i = from; i < to; i++) {
+				twoOptMatrix[i] = findBestOption(vrp.getVehicle()[i], vrp.getVehicle()[i]);
+			}
+		});
+		indexMatrix();
+	}
+
+	/**
+	 * Order all entries of the twoOptMatrix in the heap
+	 */
+	private void indexMatrix() {
+		best.reset(twoOptMatrix.length, 1);
+		for(int i = 0; i < numVehicles; i++) {
+			best.put(i, 0, twoOptMatrix[i].getDelta());
 		}
 	}
 
@@ -50,8 +108,47 @@ public class TwoOptOperation implements Operation{
 	 */
 	@Override
 	public void updateOptionMatrix(Vehicle v1, Vehicle v2) {
-		twoOptMatrix[v1.getIndex()] = findBestOption(v1, v1);
-		twoOptMatrix[v2.getIndex()] = findBestOption(v2, v2);
+		//the entry of a vehicle that did not change is kept, e.g. if both vehicles are the same
+		twoOptMatrix[v1.getIndex()] = OptionMatrices.refresh(twoOptMatrix[v1.getIndex()], this, v1, null);
+		twoOptMatrix[v2.getIndex()] = OptionMatrices.refresh(twoOptMatrix[v2.getIndex()], this, v2, null);
+		best.put(v1.getIndex(), 0, twoOptMatrix[v1.getIndex()].getDelta());
+		best.put(v2.getIndex(), 0, twoOptMatrix[v2.getIndex()].getDelta());
+	}
+
+	/**
+	 * Adapt the twoOptMatrix after a vehicle was removed from the fleet
+	 * @param index int, the index of the removed vehicle, which is now held by the former last vehicle
+	 */
+	@Override
+	public void removeVehicle(int index) {
+		numVehicles--;
+		twoOptMatrix[index] = twoOptMatrix[numVehicles];
+		twoOptMatrix = OptionMatrices.fit(twoOptMatrix, numVehicles);
+		if(twoOptMatrix.length != best.getRows()) {
+			indexMatrix();
+			return;
+		}
+		best.remove(numVehicles, 0);
+		if(index < numVehicles) {
+			best.put(index, 0, twoOptMatrix[index].getDelta());
+		}
+	}
+
+	/**
+	 * Extend the twoOptMatrix by a vehicle that was added at the end of the fleet
+	 * @param v Vehicle, the new vehicle
+	 */
+	@Override
+	public void addVehicle(Vehicle v) {
+		numVehicles++;
+		twoOptMatrix = OptionMatrices.fit(twoOptMatrix, numVehicles);
+		twoOptMatrix[v.getIndex()] = findBestOption(v, v);
+		if(twoOptMatrix.length != best.getRows()) {
+			indexMatrix();
+		}
+		else {
+			best.put(v.getIndex(), 0, twoOptMatrix[v.getIndex()].getDelta());
+		}
 	}
 
 	/**
@@ -83,34 +180,33 @@ public class TwoOptOperation implements Operation{
 			v.remove(cCur.getSucc());
 		}
 
-		//try to insert the customers that were taken back into the route
+		//insert the customers that were taken back into the route, all of them, so that none is lost.
+		//the reversal was checked to be feasible, but with rounding or distances that break the triangle inequality
+		//the propagation may still report a violation, which fails fast in strict mode and is only reported otherwise
+		int violation = Violation.NONE;
 		Customer cPred = limit;
 		for(Customer c : customers) {
-			if(c.canBeInsertedBetween(cPred, last)) {
-				v.insertBetween(c, cPred, last);
-			}
-			else {
-				System.out.println("Time window violation");
-				return;
+			if(!v.insertBetween(c, cPred, last) && violation == Violation.NONE) {
+				violation = v.getViolation();
 			}
 			cPred = c;
 		}
+		if(violation != Violation.NONE) {
+			System.out.println("2-opt move reported a violation: " + Violation.describe(violation));
+		}
 	}
 
 
 	/**
-	 * Get the best option of the twoOptMatrix
+	 * Get the best option of the twoOptMatrix, which is held at the top of the heap
 	 * @return Option, the best option
 	 */
 	@Override
 	public Option fetchBestOption() {
-		Option bestTwoOpt = twoOptMatrix[0];
-		for(Option o : twoOptMatrix) {
-			if(o.getDelta() < bestTwoOpt.getDelta()) {
-				bestTwoOpt = o;
-			}
+		if(best.isEmpty()) {
+			return twoOptMatrix[0];
 		}
-		return bestTwoOpt;
+		return twoOptMatrix[best.peekRow()];
 	}
 
 	/**
@@ -124,115 +220,87 @@ public class TwoOptOperation implements Operation{
 		Vehicle v = v1;
 		Option twoOpt = new TwoOptOption(null, null, v, 0, this);
 
-		//get the first route of the vehicle
-		Customer c1 = v.getFirstCustomer();
-		Customer c2 = c1.getSucc();
-		//go through all routes
-
-		while(!c2.equals(v.getLastCustomer())) {
-
-			//get the succeeding route
-			Customer c3 = c2;
-			Customer c4 = c3.getSucc();
-			//compare each route with all following routes
-			while(!c3.equals(v.getLastCustomer())) {
-
-				//check if the routes cross
-				if(lineCollision(c1, c2, c3, c4)) {
-					System.out.println("Collision");
+		//go through all routes, i.e. the edges from position p to p+1
+		int length = v.getRouteLength();
+		Segment reversed = new Segment();
+		Segment single = new Segment();
+		Segment newRoute = new Segment();
+		CandidatePositions positions = candidates == null ? null : new CandidatePositions();
+		int[] route = v.getRoute();
+		for(int p = 0; p < length; p++) {
+			Customer c1 = v.getCustomerAt(p);
+			Customer c2 = v.getCustomerAt(p + 1);
+
+			//compare each route with all following routes, in granular mode the routes are collected from the candidates,
+			//unless an edge to the depot is created anyway or the rest of the tour is shorter than the lists of candidates
+			boolean collect = candidates != null && p > 0 && candidates.getDegree(c1.getIndex()) + candidates.getDegree(c2.getIndex()) < length - p;
+			int count = collect ? reversalPositions(v, p, positions) : length - p;
+			int reversedTo = p; // the reversed part holds the positions p+1 to reversedTo
+			for(int r = 0; r < count; r++) {
+				int q = collect ? positions.get(r) : p + 1 + r;
+				Customer c3 = v.getCustomerAt(q);
+				Customer c4 = v.getCustomerAt(q + 1);
+
+				//check if the routes cross, in granular mode one of the new edges has to be a candidate edge
+				//and the new arcs have to be compatible with respect to the time windows
+				if(lineCollision(c1, c2, c3, c4) && (collect || isCandidate(c1, c3) || isCandidate(c2, c4))
+						&& vrp.canFollow(c1.getIndex(), c3.getIndex()) && vrp.canFollow(c2.getIndex(), c4.getIndex())) {
+
+					//extend the reversed part c3 ... c2 up to the new start c3
+					while(reversedTo < q) {
+						reversedTo++;
+						if(reversedTo == p + 1) {
+							reversed.set(vrp.getInstance(), route[reversedTo]);
+						}
+						else {
+							reversed.concat(single.set(vrp.getInstance(), route[reversedTo]), vrp.distance(route[reversedTo], route[reversedTo - 1]), reversed);
+						}
+					}
 
 					//check if a reversal is possible and what benefit it would bring
-					double delta = checkReversal(v,c3, c2);
+					double delta = checkReversal(v, p, q, reversed, newRoute);
 
 					if(delta < twoOpt.getDelta()) {
 						twoOpt = new TwoOptOption(c3, c2, v, delta, this);
 					}
 				}
-				//move to the following route
-				c3 = c4;
-				c4 = c4.getSucc();
 			}
-			//move to the next route
-			c1 = c2;
-			c2 = c2.getSucc();
 		}
 		//return the best two opt
 		return twoOpt;
 	}
 
 	/**
-	 * Check if the route between two customers can be reversed
-	 * @param newStart Customer, the start of the new middle route
-	 * @param newEnd Customer, the end of the new middle route
+	 * Check if the route between two positions can be reversed
+	 * @param v Vehicle, the vehicle of the route
+	 * @param p int, the position of the customer before the reversed part
+	 * @param q int, the position of the last customer of the reversed part, which becomes its start
+	 * @param reversed Segment, the summary of the customers p+1 to q in reversed order
+	 * @param newRoute Segment, receives the summary of the tour after the reversal
 	 * @return double, the cost-benefit of the reversal or 0 if there is none
 	 */
-	private double checkReversal(Vehicle v, Customer newStart, Customer newEnd) {
+	private double checkReversal(Vehicle v, int p, int q, Segment reversed, Segment newRoute) {
 
-		Customer oldEnd = newStart.getSucc();
-		Customer oldStart = newEnd.getPred();
+		Customer oldStart = v.getCustomerAt(p);
+		Customer newEnd = v.getCustomerAt(p + 1);
+		Customer newStart = v.getCustomerAt(q);
+		Customer oldEnd = v.getCustomerAt(q + 1);
 		
 		//calculate the change in distance
-		double oldCost = vrp.distance(oldStart, newEnd) + vrp.distance(newStart, oldEnd);
-		double newCost = vrp.distance(oldStart, newStart) + vrp.distance(newEnd, oldEnd);
+		double oldCost = vrp.distance(oldStart.getIndex(), newEnd.getIndex()) + vrp.distance(newStart.getIndex(), oldEnd.getIndex());
+		double newCost = vrp.distance(oldStart.getIndex(), newStart.getIndex()) + vrp.distance(newEnd.getIndex(), oldEnd.getIndex());
 
 		double deltaCost = newCost - oldCost;
 
-		Customer cCur = oldStart;
 		//check for improvement and catch computational error
 		if(deltaCost < EPSILON) {
-			cCur = v.getFirstCustomer();
-
-			//get the propagation times
-			while(cCur != null) {
-				cCur.setCheckEarliest(cCur.getEarliestStart());
-				cCur.setCheckLatest(cCur.getLatestStart());
-				cCur = cCur.getSucc();
-			}
-
-			//forward propagation for the reversal part
-			cCur = oldStart;
-			Customer cSucc = newStart;
-			while (!cSucc.equals(oldStart)) {
-				cSucc.setCheckEarliest(Math.max(cSucc.getReadyTime(),cCur.getCheckEarliest()+cCur.getServiceTime()+vrp.distance(cCur,cSucc)));
-				//take the predecessor instead of the successor because of reversion
-				cCur = cSucc;
-				cSucc = cSucc.getPred();
-			}
-
-			//forward propagation for the remaining customers after the reversal (regular forward propagation)
-			cSucc = oldEnd;
-			while(cSucc != null) {
-				cSucc.setCheckEarliest(Math.max(cSucc.getReadyTime(),cCur.getCheckEarliest()+cCur.getServiceTime()+vrp.distance(cCur,cSucc)));
-				cCur = cSucc;
-				cSucc = cSucc.getSucc();
-			}
-
-			//backward propagation for the reversal part 
-			cCur = oldEnd;
-			Customer cPred = newEnd;
-			while(!cPred.equals(newStart) ) {
-				cPred.setCheckLatest(Math.min(cPred.getDueDate(), cCur.getCheckLatest() - cCur.getServiceTime() - vrp.distance(cPred, cCur)));
-				//take the successor instead of the predecessor because of reversion
-				cCur = cPred;
-				cPred = cPred.getSucc();
-			}
-
-			//backward propagation for the remaining customers before the reversal (regular backward propagation)
-			cCur = oldStart;
-			while(cPred != null) {
-				cPred.setCheckLatest(Math.min(cPred.getDueDate(), cCur.getCheckLatest() - cCur.getServiceTime() - vrp.distance(cPred, cCur)));
-				cCur = cPred;
-				cPred = cPred.getPred();
-			}
+			//concatenate the unchanged start, the reversed part and the unchanged end of the tour
+			newRoute.concat(v.getPrefix(p), vrp.distance(oldStart.getIndex(), newStart.getIndex()), reversed);
+			newRoute.concat(newRoute, vrp.distance(newEnd.getIndex(), oldEnd.getIndex()), v.getSuffix(q + 1));
 
 			//check for time-constraint violations
-			cCur = v.getFirstCustomer();
-			while(cCur != null) {
-				if(cCur.getCheckLatest() < cCur.getCheckEarliest()) {
-					System.out.println("Time window violation");
-					return 0;
-				}
-				cCur = cCur.getSucc();
+			if(!newRoute.isFeasible()) {
+				return 0;
 			}
 
 			return deltaCost;
@@ -255,14 +323,22 @@ public class TwoOptOperation implements Operation{
 	private boolean lineCollision(Customer c1, Customer c2, Customer c3, Customer c4  ) {
 
 		//extract the coordinates of the routes
-		double xC1 = c1.getxCoord();
-		double yC1 = c1.getyCoord();
-		double xC2 = c2.getxCoord();
-		double yC2 = c2.getyCoord();
-		double xC3 = c3.getxCoord();
-		double yC3 = c3.getyCoord();
-		double xC4 = c4.getxCoord();
-		double yC4 = c4.getyCoord();
+		int[] x = vrp.getInstance().getXCoords();
+		int[] y = vrp.getInstance().getYCoords();
+		double xC1 = x[c1.getIndex()];
+		double yC1 = y[c1.getIndex()];
+		double xC2 = x[c2.getIndex()];
+		double yC2 = y[c2.getIndex()];
+		double xC3 = x[c3.getIndex()];
+		double yC3 = y[c3.getIndex()];
+		double xC4 = x[c4.getIndex()];
+		double yC4 = y[c4.getIndex()];
+
+		//routes whose bounding boxes are disjoint can not cross
+		if(Math.max(xC1, xC2) < Math.min(xC3, xC4) || Math.max(xC3, xC4) < Math.min(xC1, xC2)
+				|| Math.max(yC1, yC2) < Math.min(yC3, yC4) || Math.max(yC3, yC4) < Math.min(yC1, yC2)) {
+			return false;
+		}
 
 		//check if the routes are contiguous
 		if((xC1 == xC3 && yC1 == yC3) || (xC1 == xC4 && yC1 == yC4)) {
@@ -309,7 +385,7 @@ public class TwoOptOperation implements Operation{
 		testV.insertBetween(c[7], c[8], testV.getLastCustomer());
 		testV.show();
 		
-		TwoOptOperation two = new TwoOptOperation(vrp, numCustomers);
+		TwoOptOperation two = new TwoOptOperation(vrp);
 		
 		Option x = two.findBestOption(testV, testV);
 		x.printOption();
@@ -0,0 +1,272 @@
+package representation;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary format for VRP-instances, which is opened as memory-mapped file.
+ * The file consists of a header, the customer columns and an optional distance matrix:
+ * <pre>
+ * int magic, int version, int n, int m, int capacity, int flags, int nameLength, byte[] name (padded to 8 bytes)
+ * int[n+1] custNo, xCoord, yCoord, demand, readyTime, dueDate, serviceTime (padded to 8 bytes)
+ * double[(n+1)*(n+1)] distances in row-major order (only if flags contains DISTANCES)
+ * </pre>
+ * @author Tom Decke
+ *
+ */
+public class BinaryInstance implements InstanceSource {
+
+	/**magic number at the start of each binary instance ("VRPB")*/
+	public static final int MAGIC = 0x56525042;
+	/**version of the format*/
+	public static final int VERSION = 1;
+	/**flag marking that a distance matrix is stored*/
+	public static final int DISTANCES = 1;
+	/**flag marking that the stored distances are not the euclidean distances of the coordinates*/
+	public static final int EXPLICIT = 2;
+
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private String name;
+	private int fileCustomers; // number of customers stored in the file
+	private int numCustomers; // number of customers that are used
+	private int numVehicles, capacity, flags;
+	private int[][] columns;
+	private MappedByteBuffer buffer;
+	private int distanceOffset;
+
+	/**
+	 * Constructor to open all customers of a binary instance
+	 * @param fname String, name of the binary file
+	 * @throws IOException
+	 */
+	public BinaryInstance(String fname) throws IOException {
+		this(fname, -1);
+	}
+
+	/**
+	 * Constructor to open the first customers of a binary instance
+	 * @param fname String, name of the binary file
+	 * @param maxCustomers int, the number of customers to use, or -1 to use all of them
+	 * @throws IOException
+	 */
+	public BinaryInstance(String fname, int maxCustomers) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)){
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Binary instance too large to be mapped: " + fname);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ORDER);
+
+		//read the header
+		if(buffer.getInt() != MAGIC) {
+			throw new IOException("Not a binary VRP-instance: " + fname);
+		}
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException("Unsupported version " + version + " of binary instance " + fname);
+		}
+		fileCustomers = buffer.getInt();
+		numVehicles = buffer.getInt();
+		capacity = buffer.getInt();
+		flags = buffer.getInt();
+		byte[] nameBytes = new byte[buffer.getInt()];
+		buffer.get(nameBytes);
+		name = new String(nameBytes, StandardCharsets.UTF_8);
+		buffer.position(align(buffer.position()));
+
+		if(maxCustomers > fileCustomers) {
+			throw new IOException("Instance " + name + " contains " + fileCustomers + " customers, but " + maxCustomers + " were requested");
+		}
+		numCustomers = maxCustomers < 0 ? fileCustomers : maxCustomers;
+
+		//read the customer columns
+		int rows = fileCustomers + 1;
+		IntBuffer ints = buffer.slice().order(ORDER).asIntBuffer();
+		columns = new int[COLUMNS][numCustomers+1];
+		for(int c = 0; c < COLUMNS; c++) {
+			ints.position(c * rows);
+			ints.get(columns[c]);
+		}
+		distanceOffset = align(buffer.position() + COLUMNS * rows * Integer.BYTES);
+	}
+
+	/**
+	 * Check if a file starts with the magic number of the binary format
+	 * @param fname String, name of the file
+	 * @return boolean, true if the file is a binary instance
+	 * @throws IOException
+	 */
+	public static boolean isBinary(String fname) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)){
+			ByteBuffer head = ByteBuffer.allocate(Integer.BYTES).order(ORDER);
+			while(head.hasRemaining() && channel.read(head) >= 0) {
+				//read until the magic number is complete or the file ends
+			}
+			return !head.hasRemaining() && head.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Convert an instance of any registered format into the binary format.
+	 * Explicit distances are always stored, as they cannot be calculated from the coordinates.
+	 * @param textFile String, name of the instance
+	 * @param binFile String, name of the binary file to write
+	 * @param withDistances boolean, whether or not the distance matrix is to be stored
+	 * @throws IOException
+	 */
+	public static void convert(String textFile, String binFile, boolean withDistances) throws IOException {
+		InstanceSource reader = InstanceReaders.open(textFile, -1);
+		int n = reader.getNumCustomers();
+		DistanceStore explicit = reader.hasExplicitDistances() ? reader.getDistances() : null;
+		withDistances |= explicit != null;
+		int flags = (withDistances ? DISTANCES : 0) | (explicit != null ? EXPLICIT : 0);
+		int rows = n + 1;
+		byte[] nameBytes = reader.getName().getBytes(StandardCharsets.UTF_8);
+
+		try(FileChannel channel = FileChannel.open(Paths.get(binFile), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+
+			//write header and customer columns
+			int headerSize = align(7 * Integer.BYTES + nameBytes.length);
+			ByteBuffer out = ByteBuffer.allocate(headerSize + align(COLUMNS * rows * Integer.BYTES)).order(ORDER);
+			out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(reader.getNumVehicles()).putInt(reader.getCapacity());
+			out.putInt(flags).putInt(nameBytes.length).put(nameBytes);
+			out.position(headerSize);
+			for(int c = 0; c < COLUMNS; c++) {
+				for(int v : reader.getColumn(c)) {
+					out.putInt(v);
+				}
+			}
+			out.position(0);
+			writeFully(channel, out);
+
+			//write the distance matrix row by row
+			if(withDistances) {
+				int[] x = reader.getColumn(X_COORD);
+				int[] y = reader.getColumn(Y_COORD);
+				ByteBuffer row = ByteBuffer.allocate(rows * Double.BYTES).order(ORDER);
+				for(int i = 0; i < rows; i++) {
+					row.clear();
+					for(int j = 0; j < rows; j++) {
+						row.putDouble(explicit != null ? explicit.get(i, j) : DistanceStore.euclidean(x, y, i, j));
+					}
+					row.flip();
+					writeFully(channel, row);
+				}
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Round an offset up to the next multiple of 8 bytes
+	 */
+	private static int align(int offset) {
+		return (offset + 7) & ~7;
+	}
+
+	/**
+	 * Accessor for the stored distances, which are read directly from the mapped file
+	 * @return DistanceStore, the distances of the used customers, or null if the file has no distances
+	 */
+	public DistanceStore getDistances() {
+		if(!hasDistances()) {
+			return null;
+		}
+		ByteBuffer matrix = buffer.duplicate();
+		matrix.position(distanceOffset);
+		DoubleBuffer doubles = matrix.slice().order(ORDER).asDoubleBuffer();
+		return new MappedDistanceStore(doubles, numCustomers+1, fileCustomers+1);
+	}
+
+	/**
+	 * Check if the file contains a distance matrix
+	 * @return boolean, true if distances are stored
+	 */
+	public boolean hasDistances() {
+		return (flags & DISTANCES) != 0;
+	}
+
+	/**
+	 * Check if the stored distances were given explicitly by the original instance
+	 * @return boolean, true if the distances cannot be calculated from the coordinates
+	 */
+	public boolean hasExplicitDistances() {
+		return (flags & EXPLICIT) != 0;
+	}
+
+	/**
+	 * Create the customer at the given position of the instance
+	 * @param i int, the position, where position 0 is the depot
+	 * @return Customer, a new customer with the stored data
+	 */
+	public Customer createCustomer(int i) {
+		return new Customer(columns[CUST_NO][i], columns[X_COORD][i], columns[Y_COORD][i], columns[DEMAND][i],
+				columns[READY_TIME][i], columns[DUE_DATE][i], columns[SERVICE_TIME][i]);
+	}
+
+	/**
+	 * Accessor for a column of the customer data
+	 * @param column int, index of the column (0 = customer number, ..., 6 = service time)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Accessor for the name of the instance
+	 * @return String, the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getNumVehicles() {
+		return numVehicles;
+	}
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Accessor for the number of customers (without the depot)
+	 * @return int, the number of customers
+	 */
+	public int getNumCustomers() {
+		return numCustomers;
+	}
+
+	/**
+	 * Main method to convert text instances into the binary format
+	 * @param args String[], the text instance, the binary file and optionally "nodist" to omit the distance matrix
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean withDistances = !(args.length > 2 && args[2].equals("nodist"));
+		convert(args[0], args[1], withDistances);
+	}
+}
@@ -0,0 +1,83 @@
+package representation;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * On-the-fly distance store with a bounded, direct-mapped cache of recently used pairs.
+ * The cache consists of parallel arrays of keys and distances, so that a lookup does not allocate.
+ * A writer claims a slot before it changes the distance and a reader checks the key again after reading it,
+ * so the store can be read by several threads.
+ * @author Tom Decke
+ *
+ */
+public class CachedDistanceStore extends EuclideanDistanceStore {
+
+	/**default number of cache slots*/
+	public static final int DEFAULT_CACHE_SIZE = 1 << 20;
+
+	private static final long EMPTY = -1; // key of a slot that was never written
+	private static final long BUSY = -2; // key of a slot whose distance is being written
+	private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final long[] keys; // the pair held by each slot, i << 32 | j with i <= j
+	private final double[] values; // the distance of the pair held by each slot
+	private final int mask;
+
+	/**
+	 * Constructor for a store with the default cache size
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public CachedDistanceStore(int[] x, int[] y) {
+		this(x, y, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Constructor for a store with a given cache size
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 * @param cacheSize int, the number of cached pairs, rounded up to a power of two
+	 */
+	public CachedDistanceStore(int[] x, int[] y, int cacheSize) {
+		super(x, y);
+		int slots = Integer.highestOneBit(Math.max(1, cacheSize - 1)) << 1;
+		keys = new long[slots];
+		Arrays.fill(keys, EMPTY);
+		values = new double[slots];
+		mask = slots - 1;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		//the distances are symmetric, so both directions share a slot
+		if(i > j) {
+			int tmp = i;
+			i = j;
+			j = tmp;
+		}
+		long key = (long) i << 32 | j;
+		int slot = hash(i, j) & mask;
+		long current = (long) KEYS.getAcquire(keys, slot);
+		if(current == key) {
+			double d = values[slot];
+			//the distance belongs to the key if no writer claimed the slot in the meantime
+			VarHandle.acquireFence();
+			if((long) KEYS.getOpaque(keys, slot) == key) {
+				return d;
+			}
+		}
+		double d = euclidean(x, y, i, j);
+		//only one thread at a time writes a slot, the others leave it as it is
+		if(current != BUSY && KEYS.compareAndSet(keys, slot, current, BUSY)) {
+			values[slot] = d;
+			KEYS.setRelease(keys, slot, key);
+		}
+		return d;
+	}
+
+	private static int hash(int i, int j) {
+		int h = i * 0x9E3779B1 + j;
+		return h ^ (h >>> 16);
+	}
+}
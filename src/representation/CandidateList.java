@@ -0,0 +1,229 @@
+package representation;
+import java.util.Arrays;
+
+/**
+ * Candidate lists for granular neighbourhoods, kept in primitive arrays.
+ * Each customer is assigned its nearest customers, optionally restricted to those
+ * with compatible time windows. Edges to the depot are always candidates.
+ * The candidate edges are also kept as symmetric adjacency lists, so that granular neighbourhoods can be built
+ * from the candidates of a customer, and in an open-addressing table of edges, so that an edge is checked in O(1).
+ * @author Tom Decke
+ *
+ */
+public class CandidateList {
+
+	private final int size;
+	private final int k;
+	private final int[] start; // the candidates of i are list[start[i]] ... list[start[i+1]-1]
+	private final int[] list;
+	private final int[] adjacentStart; // the customers sharing a candidate edge with i are adjacent[adjacentStart[i]] ... adjacent[adjacentStart[i+1]-1]
+	private final int[] adjacent;
+	private final long[] edges; // the candidate edges between customers, i << 32 | j with i < j, or EMPTY
+	private final int mask;
+
+	private static final long EMPTY = -1; // key of an unused slot of the edge table
+
+	/**
+	 * Constructor for candidate lists from precomputed arrays
+	 * @param start int[], the offset of each customer's list, with one additional entry marking the end
+	 * @param list int[], the candidates of all customers ordered by increasing distance
+	 * @param k int, the maximal length of each list
+	 */
+	public CandidateList(int[] start, int[] list, int k) {
+		this.size = start.length - 1;
+		this.start = start;
+		this.list = list;
+		this.k = k;
+
+		//collect every edge between two customers once, edges to the depot are candidates anyway
+		int slots = Integer.highestOneBit(Math.max(1, 2 * list.length)) << 1;
+		edges = new long[slots];
+		Arrays.fill(edges, EMPTY);
+		mask = slots - 1;
+		int[] from = new int[list.length];
+		int[] to = new int[list.length];
+		int[] degree = new int[size + 1];
+		int count = 0;
+		for(int i = 1; i < size; i++) {
+			for(int p = start[i]; p < start[i+1]; p++) {
+				int j = list[p];
+				if(j != 0 && j != i && insert(i, j)) {
+					from[count] = i;
+					to[count++] = j;
+					degree[i]++;
+					degree[j]++;
+				}
+			}
+		}
+
+		//both ends of an edge are adjacent to each other
+		adjacentStart = new int[size + 1];
+		for(int i = 0; i < size; i++) {
+			adjacentStart[i+1] = adjacentStart[i] + degree[i];
+		}
+		adjacent = new int[2 * count];
+		int[] fill = Arrays.copyOf(adjacentStart, size);
+		for(int e = 0; e < count; e++) {
+			adjacent[fill[from[e]]++] = to[e];
+			adjacent[fill[to[e]]++] = from[e];
+		}
+	}
+
+	/**
+	 * Add an edge to the edge table
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return boolean, true if the edge was not in the table before
+	 */
+	private boolean insert(int i, int j) {
+		long key = key(i, j);
+		for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			if(edges[slot] == key) {
+				return false;
+			}
+			if(edges[slot] == EMPTY) {
+				edges[slot] = key;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Determine the key of an edge, which is the same for both directions
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return long, the key
+	 */
+	private static long key(int i, int j) {
+		return i < j ? (long) i << 32 | j : (long) j << 32 | i;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Determine the candidate lists of all customers of an instance
+	 * @param instance ProblemInstance, the instance
+	 * @param k int, the number of candidates per customer
+	 * @param timeWindows boolean, whether or not customers with incompatible time windows are to be excluded
+	 * @return CandidateList, the candidate lists
+	 */
+	public static CandidateList build(ProblemInstance instance, int k, boolean timeWindows) {
+		int size = instance.getN() + 1;
+		k = Math.max(0, Math.min(k, size-1));
+
+		//look further ahead if neighbours might be dropped due to their time windows
+		int lookAhead = timeWindows ? Math.min(2 * k, size-1) : k;
+		NeighbourTable nearest = NeighbourTable.nearest(instance.getColumn(InstanceSource.X_COORD),
+				instance.getColumn(InstanceSource.Y_COORD), lookAhead);
+
+		int[] start = new int[size+1];
+		int[] list = new int[size * k];
+		int length = 0;
+		for(int i = 0; i < size; i++) {
+			start[i] = length;
+			int found = 0;
+			for(int r = 0; r < lookAhead && found < k; r++) {
+				int j = nearest.getNeighbour(i, r);
+				if(!timeWindows || compatible(instance, i, j)) {
+					list[length++] = j;
+					found++;
+				}
+			}
+		}
+		start[size] = length;
+		return new CandidateList(start, Arrays.copyOf(list, length), k);
+	}
+
+	/**
+	 * Check if two customers can be visited one after the other in any order
+	 * @param instance ProblemInstance, the instance
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return boolean, true if i can precede j or j can precede i
+	 */
+	public static boolean compatible(ProblemInstance instance, int i, int j) {
+		int[] ready = instance.getColumn(InstanceSource.READY_TIME);
+		int[] due = instance.getColumn(InstanceSource.DUE_DATE);
+		int[] service = instance.getColumn(InstanceSource.SERVICE_TIME);
+		return ready[i] + service[i] + instance.distance(i, j) <= due[j]
+				|| ready[j] + service[j] + instance.distance(j, i) <= due[i];
+	}
+
+	/**
+	 * Check in O(1) if the edge between two customers is a candidate edge,
+	 * i.e. one of them is the depot or is a candidate of the other one
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return boolean, true if the edge is a candidate
+	 */
+	public boolean isCandidate(int i, int j) {
+		if(i == 0 || j == 0) {
+			return true;
+		}
+		long key = key(i, j);
+		for(int slot = hash(key) & mask; edges[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if(edges[slot] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Accessor for the number of customers that share a candidate edge with a customer, not counting the depot
+	 * @param i int, index of the customer
+	 * @return int, the number of adjacent customers
+	 */
+	public int getDegree(int i) {
+		return adjacentStart[i+1] - adjacentStart[i];
+	}
+
+	/**
+	 * Accessor for a customer that shares a candidate edge with a customer,
+	 * i.e. it is a candidate of the customer or has the customer as a candidate
+	 * @param i int, index of the customer
+	 * @param r int, the number of the adjacent customer, below getDegree(i)
+	 * @return int, index of the adjacent customer
+	 */
+	public int getAdjacent(int i, int r) {
+		return adjacent[adjacentStart[i] + r];
+	}
+
+	/**
+	 * Accessor for the number of candidates of a customer
+	 * @param i int, index of the customer
+	 * @return int, the length of its list
+	 */
+	public int getLength(int i) {
+		return start[i+1] - start[i];
+	}
+
+	/**
+	 * Accessor for a single candidate
+	 * @param i int, index of the customer
+	 * @param r int, the rank of the candidate
+	 * @return int, index of the r-th nearest candidate of i
+	 */
+	public int getCandidate(int i, int r) {
+		return list[start[i] + r];
+	}
+
+	/**
+	 * Accessor for the maximal number of candidates per customer
+	 * @return int, k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Accessor for the number of customers (including the depot)
+	 * @return int, the size
+	 */
+	public int size() {
+		return size;
+	}
+}
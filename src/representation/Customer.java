@@ -1,5 +1,4 @@
 package representation;
-import addOns.TimeConstraintViolationException;
 
 
 /**
@@ -10,7 +9,9 @@ import addOns.TimeConstraintViolationException;
 public class Customer {
 
 	private int custNo, xCoord, yCoord, demand, readyTime, dueDate, serviceTime;
-	private double earliestStart, latestStart, checkLatest,checkEarliest; // ... can be reset to readyTime & dueDate 
+	private int index; // dense index of the customer in the VRP, the depot and its dummies have index 0
+	private int slot; // position of the time window in the arrays of the instance, the dummies of the depot have their own
+	private double earliestStart, latestStart; // ... can be reset to readyTime & dueDate 
 	private Customer pred,succ;
 	private Vehicle vehicle;
 	private VRP vrp;
@@ -40,6 +41,7 @@ public class Customer {
 		this.readyTime = readyTime;
 		this.dueDate = dueDate;
 		this.serviceTime = serviceTime;
+		this.index = this.slot = custNo;
 		pred = null;
 		succ = null;
 		earliestStart = readyTime;
@@ -54,8 +56,14 @@ public class Customer {
 	 * @return boolean, true if this customer fits between y and z
 	 */
 	public boolean canBeInsertedBetween(Customer y,Customer z){
-		double es = Math.max(this.readyTime,y.earliestStart + y.serviceTime + vrp.distance(y,this));
-		double ls = Math.min(this.dueDate,z.latestStart - (this.serviceTime + vrp.distance(this,z)));
+		//reject arcs that can never be feasible before doing any arithmetic
+		if(!vrp.canFollow(y.index,this.index) || !vrp.canFollow(this.index,z.index)) {
+			return false;
+		}
+		ProblemInstance data = vrp.getInstance();
+		int[] service = data.getServiceTimes();
+		double es = Math.max(data.getReadyTimes()[slot],y.earliestStart + service[y.slot] + vrp.distance(y.index,this.index));
+		double ls = Math.min(data.getDueDates()[slot],z.latestStart - (service[slot] + vrp.distance(this.index,z.index)));
 		return es <= ls;
 	}
 
@@ -63,49 +71,89 @@ public class Customer {
 	 * Propagate earliest and latest start for the insertion of a customer
 	 * @param y Customer, potential predecessor
 	 * @param z Customer, potential successor
-	 * @throws TimeConstraintViolationException 
-	 */
-	public void insertBetween(Customer y,Customer z) throws TimeConstraintViolationException{
-		earliestStart = Math.max(this.readyTime,y.earliestStart + y.serviceTime + vrp.distance(y,this));
-		latestStart = Math.min(this.dueDate,z.latestStart - (this.serviceTime + vrp.distance(this,z)));
-		propagateLatestStart();
-		propagateEarliestStart();
+	 * @return int, the code of the first violated time window, or Violation.NONE
+	 */
+	public int insertBetween(Customer y,Customer z){
+		ProblemInstance data = vrp.getInstance();
+		int[] service = data.getServiceTimes();
+		earliestStart = Math.max(data.getReadyTimes()[slot],y.earliestStart + service[y.slot] + vrp.distance(y.index,this.index));
+		latestStart = Math.min(data.getDueDates()[slot],z.latestStart - (service[slot] + vrp.distance(this.index,z.index)));
+		int violation = propagateLatestStart();
+		if(violation == Violation.NONE) {
+			violation = propagateEarliestStart();
+		}
+		if(violation == Violation.NONE && earliestStart > latestStart) {
+			violation = Violation.of(Violation.TIME_WINDOW, index);
+		}
+		return violation;
 	}
 
 	/**
-	 * Propagate the latest start for a customer (propagate left)
-	 * @throws TimeConstraintViolationException
+	 * Propagate the latest start for a customer (propagate left).
+	 * The propagation stops at the first customer whose latest start does not change, as the customers before it cannot change either,
+	 * or at the first customer whose latest start comes before its earliest start.
+	 * @return int, the code of the violated time window, or Violation.NONE
 	 */
-	public void propagateLatestStart() throws TimeConstraintViolationException{
+	public int propagateLatestStart(){
 		Customer current = this;
+		int touched = 0;
+		int violation = Violation.NONE;
+		int[] due = vrp.getInstance().getDueDates();
+		int[] service = vrp.getInstance().getServiceTimes();
 		// propagate latestStart left
 		while (current.pred != null){
 			Customer cPred = current.pred;
+			touched++;
 			//latest start is the minimum between due date and the time necessary to leave for the successor to be served
-			cPred.latestStart = Math.min(cPred.dueDate,current.latestStart - (cPred.serviceTime + vrp.distance(cPred,current)));
+			double latest = Math.min(due[cPred.slot],current.latestStart - (service[cPred.slot] + vrp.distance(cPred.index,current.index)));
+			if(latest == cPred.latestStart) {
+				break;
+			}
+			cPred.latestStart = latest;
 			if(cPred.earliestStart > cPred.latestStart) {
-				throw new TimeConstraintViolationException("Updated latest start comes before current earliest start");
+				violation = Violation.of(Violation.TIME_WINDOW, cPred.index);
+				break;
 			}
 			current = cPred;
 		}
+		if(touched > 0) {
+			vrp.addPropagationSteps(touched);
+		}
+		return violation;
 	}
 
 	/**
-	 * Propagate the earliest start for a customer (propagate right)
-	 * @throws TimeConstraintViolationException
+	 * Propagate the earliest start for a customer (propagate right).
+	 * The propagation stops at the first customer whose earliest start does not change, as the customers after it cannot change either,
+	 * or at the first customer whose earliest start comes after its latest start.
+	 * @return int, the code of the violated time window, or Violation.NONE
 	 */
-	public void propagateEarliestStart() throws TimeConstraintViolationException {
+	public int propagateEarliestStart(){
 		Customer current = this;
+		int touched = 0;
+		int violation = Violation.NONE;
+		int[] ready = vrp.getInstance().getReadyTimes();
+		int[] service = vrp.getInstance().getServiceTimes();
 		// propagate earliestStart right
 		while (current.succ != null){
 			Customer cSucc = current.succ;
+			touched++;
 			//earliest start is the max between arrival at and ready time of the customer
-			cSucc.earliestStart = Math.max(cSucc.readyTime,current.earliestStart + current.serviceTime + vrp.distance(current,cSucc));
+			double earliest = Math.max(ready[cSucc.slot],current.earliestStart + service[current.slot] + vrp.distance(current.index,cSucc.index));
+			if(earliest == cSucc.earliestStart) {
+				break;
+			}
+			cSucc.earliestStart = earliest;
 			if(cSucc.earliestStart > cSucc.latestStart) {
-				throw new TimeConstraintViolationException("Updated earliest start comes before current latest start");
+				violation = Violation.of(Violation.TIME_WINDOW, cSucc.index);
+				break;
 			}
 			current = cSucc;
 		}
+		if(touched > 0) {
+			vrp.addPropagationSteps(touched);
+		}
+		return violation;
 	}
 
 	/**
@@ -121,6 +169,8 @@ public class Customer {
 	 */
 	public Customer copy() {
 		Customer nC = new Customer(this.custNo,this.xCoord,this.yCoord,this.demand,this.readyTime,this.dueDate,this.serviceTime);
+		nC.index = this.index;
+		nC.slot = this.slot;
 		nC.vehicle = this.vehicle;
 		nC.vrp = this.vrp;
 		nC.earliestStart = this.earliestStart;
@@ -145,6 +195,38 @@ public class Customer {
 		this.custNo = custNo;
 	}
 
+	/**
+	 * Accessor for the dense index of the customer, which is used to look up distances
+	 * @return int, the index (0 for the depot and its dummies)
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Mutator for the dense index of the customer
+	 * @param index int, the new index
+	 */
+	public void setIndex(int index) {
+		this.index = this.slot = index;
+	}
+
+	/**
+	 * Accessor for the slot of the customer in the time window arrays of the instance
+	 * @return int, the slot, which equals the index except for the dummies of the depot
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Mutator for the slot of the customer in the time window arrays of the instance
+	 * @param slot int, the new slot
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 	/**
 	 * Accessor for the x-coordinate
 	 * @return int, x-coordinate of the customer
@@ -271,37 +353,6 @@ public class Customer {
 		this.latestStart = latestStart;
 	}
 
-	/**
-	 * Accessor for the copy of the latest start time
-	 * @return double, copy of latest start
-	 */
-	public double getCheckLatest() {
-		return checkLatest;
-	}
-
-	/**
-	 * Mutator for the copy of the latest start time
-	 * @param checkLatest double, new copy of latest start
-	 */
-	public void setCheckLatest(double checkLatest) {
-		this.checkLatest = checkLatest;
-	}
-
-	/**
-	 * Accessor for the copy of the earliest start time
-	 * @return double, copy of earliest start
-	 */
-	public double getCheckEarliest() {
-		return checkEarliest;
-	}
-	/**
-	 * Mutator for the copy of the earliest start time
-	 * @param checkEarliest double, new copy of earliest start
-	 */
-	public void setCheckEarliest(double checkEarliest) {
-		this.checkEarliest = checkEarliest;
-	}
-
 	/**
 	 * Accessor for the predecessor of a customer
 	 * @return Customer, the predecessor
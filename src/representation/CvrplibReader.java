@@ -0,0 +1,435 @@
+package representation;
+import java.io.IOException;
+
+/**
+ * Reader for capacitated instances in the CVRPLIB/TSPLIB format (.vrp-files).
+ * The depot becomes customer 0 and the other nodes are numbered 1..n in the order of their ids.
+ * As the format has no time windows, every customer can be served at any time, the route length limit
+ * given by DISTANCE becomes the due date of the depot.
+ * Explicit distances (EDGE_WEIGHT_TYPE EXPLICIT) are read into a flat distance matrix. For EUC_2D and CEIL_2D
+ * the coordinates are read as decimals and the euclidean distances are rounded to the nearest integer (nint of TSPLIB)
+ * or up into a flat distance matrix, as the reference solutions use these distances.
+ * Any other weight type is rejected.
+ * @author Tom Decke
+ *
+ */
+public class CvrplibReader implements InstanceSource {
+
+	/**due date of customers without time window*/
+	public static final int NO_DUE_DATE = Integer.MAX_VALUE / 2;
+
+	private String name = "";
+	private int numVehicles, capacity;
+	private int numCustomers; // not counting the depot
+	private int dimension; // number of nodes in the file, including the depot
+	private String weightType = "EUC_2D", weightFormat = "FULL_MATRIX";
+	private int serviceTime, routeLimit = NO_DUE_DATE;
+	private double[] nodeX, nodeY; // coordinates of the nodes in the order of their ids
+	private int[] nodeDemand; // demands of the nodes in the order of their ids
+	private double[] nodeDistance; // explicit distances in the order of the ids, or null
+	private int depot = -1; // position of the depot among the nodes
+	private int[][] columns;
+	private DistanceStore distance;
+
+	/**
+	 * Constructor to read all customers of a CVRPLIB-instance
+	 * @param fname String, name of the file containing the instance
+	 * @throws IOException
+	 */
+	public CvrplibReader(String fname) throws IOException {
+		this(fname, -1);
+	}
+
+	/**
+	 * Constructor to read the first customers of a CVRPLIB-instance
+	 * @param fname String, name of the file containing the instance
+	 * @param maxCustomers int, the number of customers to read, or -1 to read all of them
+	 * @throws IOException
+	 */
+	public CvrplibReader(String fname, int maxCustomers) throws IOException {
+		this(new NumberScanner(fname), maxCustomers);
+	}
+
+	/**
+	 * Constructor to read a CVRPLIB-instance from a scanner
+	 * @param sc NumberScanner, scanner positioned at the start of the instance
+	 * @param maxCustomers int, the number of customers to read, or -1 to read all of them
+	 * @throws IOException
+	 */
+	public CvrplibReader(NumberScanner sc, int maxCustomers) throws IOException {
+		//read the specification entries and the data sections
+		while(sc.hasNext()) {
+			String token = sc.next();
+			int colon = token.indexOf(':');
+			String key = (colon < 0 ? token : token.substring(0, colon)).toUpperCase();
+			if(key.equals("EOF")) {
+				break;
+			}
+			if(key.endsWith("_SECTION")) {
+				readSection(sc, key);
+				continue;
+			}
+			if(key.equals("COMMENT")) {
+				sc.skipLine();
+				continue;
+			}
+			readEntry(sc, key, colon < 0 ? "" : token.substring(colon + 1));
+		}
+
+		if(dimension == 0 || nodeX == null) {
+			throw new IOException("Missing DIMENSION in instance " + name);
+		}
+		if(weightType.equals("EXPLICIT") && nodeDistance == null) {
+			throw new IOException("Missing EDGE_WEIGHT_SECTION in instance " + name);
+		}
+		if(depot < 0) {
+			depot = 0;
+		}
+		if(maxCustomers > dimension - 1) {
+			throw new IOException("Instance " + name + " contains " + (dimension-1) + " customers, but " + maxCustomers + " were requested");
+		}
+		numCustomers = maxCustomers < 0 ? dimension - 1 : maxCustomers;
+		if(numVehicles == 0) {
+			numVehicles = vehiclesFromName();
+		}
+		createColumns();
+	}
+
+	/**
+	 * Read the value of a specification entry, which is separated from the key by a colon
+	 * @param sc NumberScanner, scanner positioned after the key
+	 * @param key String, the key in upper case
+	 * @param value String, the part of the value that is attached to the key
+	 * @throws IOException
+	 */
+	private void readEntry(NumberScanner sc, String key, String value) throws IOException {
+		if(value.isEmpty()) {
+			value = sc.next();
+			if(value.equals(":")) {
+				value = sc.next();
+			}
+			else if(value.startsWith(":")) {
+				value = value.substring(1);
+			}
+		}
+		try {
+			switch(key) {
+			case "NAME":
+				name = value;
+				break;
+			case "DIMENSION":
+				allocate(Integer.parseInt(value));
+				break;
+			case "CAPACITY":
+				capacity = Integer.parseInt(value);
+				break;
+			case "VEHICLES":
+				numVehicles = Integer.parseInt(value);
+				break;
+			case "DISTANCE":
+				routeLimit = (int) Math.round(Double.parseDouble(value));
+				break;
+			case "SERVICE_TIME":
+				serviceTime = (int) Math.round(Double.parseDouble(value));
+				break;
+			case "EDGE_WEIGHT_TYPE":
+				weightType = value.toUpperCase();
+				if(!weightType.equals("EUC_2D") && !weightType.equals("CEIL_2D") && !weightType.equals("EXPLICIT")) {
+					throw new IOException("Unsupported EDGE_WEIGHT_TYPE " + weightType + " in instance " + name);
+				}
+				break;
+			case "EDGE_WEIGHT_FORMAT":
+				weightFormat = value.toUpperCase();
+				break;
+			default:
+				//TYPE, DISPLAY_DATA_TYPE, NODE_COORD_TYPE, ... do not change the instance
+				break;
+			}
+		} catch(NumberFormatException nfe) {
+			throw new IOException("Invalid value " + value + " of " + key + " in instance " + name);
+		}
+	}
+
+	/**
+	 * Read a data section
+	 * @param sc NumberScanner, scanner positioned after the name of the section
+	 * @param section String, the name of the section in upper case
+	 * @throws IOException
+	 */
+	private void readSection(NumberScanner sc, String section) throws IOException {
+		if(nodeX == null) {
+			throw new IOException("DIMENSION has to precede " + section + " in instance " + name);
+		}
+		switch(section) {
+		case "NODE_COORD_SECTION":
+		case "DISPLAY_DATA_SECTION":
+			while(sc.hasNextNumber()) {
+				int node = node(sc.nextInt());
+				nodeX[node] = sc.nextDouble();
+				nodeY[node] = sc.nextDouble();
+			}
+			break;
+		case "DEMAND_SECTION":
+			while(sc.hasNextNumber()) {
+				int node = node(sc.nextInt());
+				nodeDemand[node] = sc.nextInt();
+			}
+			break;
+		case "DEPOT_SECTION":
+			//the list of depots is terminated by -1, only the first depot is used
+			while(sc.hasNextNumber()) {
+				int id = sc.nextInt();
+				if(id < 0) {
+					break;
+				}
+				if(depot < 0) {
+					depot = node(id);
+				}
+			}
+			break;
+		case "EDGE_WEIGHT_SECTION":
+			readEdgeWeights(sc);
+			break;
+		default:
+			//skip unknown sections
+			while(sc.hasNextNumber()) {
+				sc.nextDouble();
+			}
+		}
+	}
+
+	/**
+	 * Read an explicit distance matrix directly into a row-major array
+	 * @param sc NumberScanner, scanner positioned at the first weight
+	 * @throws IOException
+	 */
+	private void readEdgeWeights(NumberScanner sc) throws IOException {
+		int size = dimension;
+		nodeDistance = new double[DistanceStore.checkArraySize((long) size * size)];
+		boolean full = weightFormat.equals("FULL_MATRIX");
+		for(int i = 0; i < size; i++) {
+			int from, to;
+			switch(weightFormat) {
+			case "FULL_MATRIX":
+				from = 0;
+				to = size;
+				break;
+			case "LOWER_ROW":
+			case "UPPER_COL":
+				from = 0;
+				to = i;
+				break;
+			case "LOWER_DIAG_ROW":
+			case "UPPER_DIAG_COL":
+				from = 0;
+				to = i + 1;
+				break;
+			case "UPPER_ROW":
+			case "LOWER_COL":
+				from = i + 1;
+				to = size;
+				break;
+			case "UPPER_DIAG_ROW":
+			case "LOWER_DIAG_COL":
+				from = i;
+				to = size;
+				break;
+			default:
+				throw new IOException("Unsupported EDGE_WEIGHT_FORMAT " + weightFormat + " in instance " + name);
+			}
+			for(int j = from; j < to; j++) {
+				double d = sc.nextDouble();
+				nodeDistance[i * size + j] = d;
+				if(!full) {
+					nodeDistance[j * size + i] = d;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allocate the node data
+	 * @param size int, the number of nodes including the depot
+	 * @throws IOException
+	 */
+	private void allocate(int size) throws IOException {
+		if(size < 1) {
+			throw new IOException("Invalid DIMENSION " + size + " in instance " + name);
+		}
+		dimension = size;
+		nodeX = new double[size];
+		nodeY = new double[size];
+		nodeDemand = new int[size];
+	}
+
+	/**
+	 * Determine the position of a node from its id
+	 * @param id int, the id of the node, starting at 1
+	 * @return int, the position of the node
+	 * @throws IOException if the id is out of range
+	 */
+	private int node(int id) throws IOException {
+		if(id < 1 || id > dimension) {
+			throw new IOException("Invalid node " + id + " in instance " + name);
+		}
+		return id - 1;
+	}
+
+	/**
+	 * Determine the number of vehicles from a name like A-n32-k5, if the file has no VEHICLES entry
+	 * @return int, the number of vehicles, or the number of customers if the name does not contain it
+	 */
+	private int vehiclesFromName() {
+		int k = name.lastIndexOf("-k");
+		if(k >= 0) {
+			int end = k + 2;
+			while(end < name.length() && Character.isDigit(name.charAt(end))) {
+				end++;
+			}
+			if(end > k + 2) {
+				return Integer.parseInt(name.substring(k + 2, end));
+			}
+		}
+		return numCustomers;
+	}
+
+	/**
+	 * Create the customer columns (and the distances) with the depot at position 0
+	 */
+	private void createColumns() {
+		int rows = numCustomers + 1;
+		//position i of the instance is node order[i] of the file
+		int[] order = new int[rows];
+		order[0] = depot;
+		for(int i = 1, node = 0; i < rows; node++) {
+			if(node != depot) {
+				order[i++] = node;
+			}
+		}
+
+		columns = new int[COLUMNS][rows];
+		for(int i = 0; i < rows; i++) {
+			int node = order[i];
+			columns[CUST_NO][i] = i;
+			//the columns only keep rounded coordinates, the distances are calculated from the exact ones
+			columns[X_COORD][i] = (int) Math.round(nodeX[node]);
+			columns[Y_COORD][i] = (int) Math.round(nodeY[node]);
+			columns[DEMAND][i] = i == 0 ? 0 : nodeDemand[node];
+			columns[READY_TIME][i] = 0;
+			columns[DUE_DATE][i] = i == 0 ? routeLimit : NO_DUE_DATE;
+			columns[SERVICE_TIME][i] = i == 0 ? 0 : serviceTime;
+		}
+
+		if(nodeDistance != null) {
+			double[] matrix = nodeDistance;
+			//the matrix of the file can be used as it is, if the depot is the first node and all nodes are used
+			if(depot != 0 || rows != dimension) {
+				matrix = new double[rows * rows];
+				for(int i = 0; i < rows; i++) {
+					int row = order[i] * dimension;
+					for(int j = 0; j < rows; j++) {
+						matrix[i * rows + j] = nodeDistance[row + order[j]];
+					}
+				}
+			}
+			distance = new FlatDistanceStore(matrix, rows);
+		}
+		else {
+			distance = new FlatDistanceStore(roundedDistances(order), rows);
+		}
+		nodeX = nodeY = null;
+		nodeDemand = null;
+		nodeDistance = null;
+	}
+
+	/**
+	 * Calculate the rounded euclidean distances of the coordinates for the weight type of the instance
+	 * @param order int[], the node of the file at each position of the instance
+	 * @return double[], the row-major distance matrix of the positions
+	 */
+	private double[] roundedDistances(int[] order) {
+		int rows = order.length;
+		double[] matrix = new double[DistanceStore.checkArraySize((long) rows * rows)];
+		boolean ceil = weightType.equals("CEIL_2D");
+		double[] x = nodeX, y = nodeY;
+		ParallelRows.run(rows, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				int a = order[i];
+				for(int j = 0; j < rows; j++) {
+					int b = order[j];
+					double d = Math.sqrt((x[a] - x[b]) * (x[a] - x[b]) + (y[a] - y[b]) * (y[a] - y[b]));
+					//nint of TSPLIB rounds halves up
+					matrix[i * rows + j] = ceil ? Math.ceil(d) : Math.floor(d + 0.5);
+				}
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * Create the customer at the given position of the instance
+	 * @param i int, the position, where position 0 is the depot
+	 * @return Customer, a new customer with the data of the position
+	 */
+	public Customer createCustomer(int i) {
+		return new Customer(columns[CUST_NO][i], columns[X_COORD][i], columns[Y_COORD][i], columns[DEMAND][i],
+				columns[READY_TIME][i], columns[DUE_DATE][i], columns[SERVICE_TIME][i]);
+	}
+
+	/**
+	 * Accessor for the name of the instance
+	 * @return String, the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getNumVehicles() {
+		return numVehicles;
+	}
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Accessor for the number of customers (without the depot)
+	 * @return int, the number of customers
+	 */
+	public int getNumCustomers() {
+		return numCustomers;
+	}
+
+	/**
+	 * Accessor for a column of the customer data
+	 * @param column int, index of the column (0 = customer number, ..., 6 = service time)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Accessor for the explicit distances
+	 * @return DistanceStore, the explicit or rounded distances of the instance
+	 */
+	public DistanceStore getDistances() {
+		return distance;
+	}
+
+	/**
+	 * Check if the distances are given explicitly
+	 * @return boolean, true as the distances are either explicit or rounded and cannot be calculated from the columns
+	 */
+	public boolean hasExplicitDistances() {
+		return distance != null;
+	}
+}
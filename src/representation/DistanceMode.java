@@ -0,0 +1,21 @@
+package representation;
+
+/**
+ * The ways in which the distances of a problem instance can be stored
+ * @author Tom Decke
+ *
+ */
+public enum DistanceMode {
+	/**full matrix in a flat row-major double array*/
+	FLAT,
+	/**packed upper triangle of a symmetric matrix in a double array, half the memory of FLAT*/
+	TRIANGULAR,
+	/**full matrix in a flat row-major float array, half the memory of FLAT at single precision*/
+	FLOAT,
+	/**no matrix, distances are calculated from the coordinates when asked*/
+	ON_THE_FLY,
+	/**no matrix, calculated distances are kept in a bounded cache*/
+	CACHED,
+	/**no matrix, distances are calculated from the coordinates and the k nearest neighbours of each customer are kept in a table*/
+	NEIGHBOURS
+}
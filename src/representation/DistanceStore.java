@@ -0,0 +1,87 @@
+package representation;
+
+/**
+ * Abstract class for the storage of the distances between the customers of a problem instance.
+ * Customers are addressed by their index in the instance, where index 0 is the depot.
+ * @author Tom Decke
+ *
+ */
+public abstract class DistanceStore {
+
+	/**number of customers (including the depot) covered by the store*/
+	protected final int size;
+
+	/**
+	 * Constructor for a distance store
+	 * @param size int, number of customers including the depot
+	 */
+	protected DistanceStore(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Create a store of euclidean distances for the given coordinates
+	 * @param mode DistanceMode, the way the distances are to be stored
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 * @return DistanceStore, the filled store
+	 */
+	public static DistanceStore create(DistanceMode mode, int[] x, int[] y) {
+		switch(mode) {
+		case TRIANGULAR:
+			return new TriangularDistanceStore(x, y);
+		case FLOAT:
+			return new FloatDistanceStore(x, y);
+		case ON_THE_FLY:
+			return new EuclideanDistanceStore(x, y);
+		case CACHED:
+			return new CachedDistanceStore(x, y);
+		case NEIGHBOURS:
+			return new NeighbourDistanceStore(x, y);
+		default:
+			return new FlatDistanceStore(x, y);
+		}
+	}
+
+	/**
+	 * Determine the distance between two customers
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return double, the distance
+	 */
+	public abstract double get(int i, int j);
+
+	/**
+	 * Accessor for the number of customers (including the depot) covered by the store
+	 * @return int, the size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Calculate the euclidean distance between two customers
+	 * @param x int[], the x-coordinates
+	 * @param y int[], the y-coordinates
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return double, the euclidean distance
+	 */
+	public static double euclidean(int[] x, int[] y, int i, int j) {
+		double deltaX = (double)(x[i] - x[j]);
+		double deltaY = (double)(y[i] - y[j]);
+		return Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
+	}
+
+	/**
+	 * Make sure that a number of entries fits into a single array
+	 * @param entries long, the number of entries
+	 * @return int, the number of entries
+	 */
+	protected static int checkArraySize(long entries) {
+		if(entries > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many customers to store " + entries + " distances in an array");
+		}
+		return (int) entries;
+	}
+}
@@ -0,0 +1,31 @@
+package representation;
+
+/**
+ * Distance store without a matrix, which calculates the euclidean distances from the coordinates when asked.
+ * It needs O(n) memory and can therefore be used for instances too large for an n x n matrix.
+ * @author Tom Decke
+ *
+ */
+public class EuclideanDistanceStore extends DistanceStore {
+
+	/**the x-coordinates, where index 0 is the depot*/
+	protected final int[] x;
+	/**the y-coordinates, where index 0 is the depot*/
+	protected final int[] y;
+
+	/**
+	 * Constructor for a store on top of coordinates
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public EuclideanDistanceStore(int[] x, int[] y) {
+		super(x.length);
+		this.x = x;
+		this.y = y;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return euclidean(x, y, i, j);
+	}
+}
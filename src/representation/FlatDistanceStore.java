@@ -0,0 +1,48 @@
+package representation;
+
+/**
+ * Distance store keeping the full matrix in a single row-major double array
+ * @author Tom Decke
+ *
+ */
+public class FlatDistanceStore extends DistanceStore {
+
+	private final double[] distance;
+
+	/**
+	 * Constructor to calculate the euclidean distances of the given coordinates
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public FlatDistanceStore(int[] x, int[] y) {
+		super(x.length);
+		distance = new double[checkArraySize((long) size * size)];
+		//each block fills whole rows, the distance is symmetric bit for bit
+		ParallelRows.run(size, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				int row = i * size;
+				for(int j = 0; j < size; j++) {
+					distance[row + j] = euclidean(x, y, i, j);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Constructor for a store on top of a given matrix, e.g. explicit distances of an instance file
+	 * @param distance double[], the row-major matrix
+	 * @param size int, number of customers (including the depot)
+	 */
+	public FlatDistanceStore(double[] distance, int size) {
+		super(size);
+		if(distance.length != size * size) {
+			throw new IllegalArgumentException("Matrix of length " + distance.length + " does not fit " + size + " customers");
+		}
+		this.distance = distance;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return distance[i * size + j];
+	}
+}
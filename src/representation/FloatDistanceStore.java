@@ -0,0 +1,35 @@
+package representation;
+
+/**
+ * Distance store keeping the full matrix in a single row-major float array (single precision)
+ * @author Tom Decke
+ *
+ */
+public class FloatDistanceStore extends DistanceStore {
+
+	private final float[] distance;
+
+	/**
+	 * Constructor to calculate the euclidean distances of the given coordinates
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public FloatDistanceStore(int[] x, int[] y) {
+		super(x.length);
+		distance = new float[checkArraySize((long) size * size)];
+		//each block fills whole rows, the distance is symmetric bit for bit
+		ParallelRows.run(size, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				int row = i * size;
+				for(int j = 0; j < size; j++) {
+					distance[row + j] = (float) euclidean(x, y, i, j);
+				}
+			}
+		});
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return distance[i * size + j];
+	}
+}
@@ -0,0 +1,183 @@
+package representation;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loader that parses and pre-processes all instances of a directory on a bounded thread pool.
+ * Ready instances (distances, time window compatibility and candidate lists computed) are handed to the
+ * solver through a queue, so that parsing overlaps with solving. A loader thread only starts parsing an instance
+ * if fewer than capacity instances are being loaded or wait for the solver, so at most capacity instances
+ * besides the one being solved are held in memory, whatever the number of threads.
+ * The instances are delivered in the order in which they are finished, not in the order of the directory.
+ * @author Tom Decke
+ *
+ */
+public class InstanceLoader implements AutoCloseable {
+
+	private final ExecutorService pool;
+	private final BlockingQueue<LoadedInstance> queue;
+	private final Semaphore slots; // one permit per instance that may be loaded or wait for the solver
+	private final int total; // number of instances that are loaded
+	private int taken; // number of instances that have been handed to the solver
+
+	/**
+	 * Instance of a directory together with the file it was loaded from
+	 */
+	public static class LoadedInstance {
+
+		private final File file;
+		private final ProblemInstance instance;
+		private final IOException error;
+
+		private LoadedInstance(File file, ProblemInstance instance, IOException error) {
+			this.file = file;
+			this.instance = instance;
+			this.error = error;
+		}
+
+		/**
+		 * Accessor for the file of the instance
+		 * @return File, the original instance file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Accessor for the loaded instance
+		 * @return ProblemInstance, the instance
+		 */
+		public ProblemInstance getInstance() {
+			return instance;
+		}
+	}
+
+	/**
+	 * Constructor to start loading all files of a directory
+	 * @param folder File, the directory containing the instances
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @param binarypath String, directory to which the instances are converted before loading, or null to load the files directly
+	 * @param granularity int, the number of candidates per customer to compute in advance, or 0 for none
+	 * @param threads int, the number of threads that load instances
+	 * @param capacity int, the number of instances that may be loaded or wait for the solver at the same time
+	 */
+	public InstanceLoader(File folder, int numberOfCustomers, String binarypath, int granularity, int threads, int capacity) {
+		ArrayList<File> files = new ArrayList<File>();
+		File[] listOfFiles = folder.listFiles();
+		if(listOfFiles != null) {
+			for(File file : listOfFiles) {
+				if(file.isFile()) {
+					files.add(file);
+				}
+			}
+		}
+		total = files.size();
+		queue = new ArrayBlockingQueue<LoadedInstance>(Math.max(1, capacity));
+		slots = new Semaphore(Math.max(1, capacity));
+		pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+			Thread t = new Thread(r, "instance-loader");
+			t.setDaemon(true);
+			return t;
+		});
+		for(File file : files) {
+			pool.execute(() -> {
+				try {
+					//wait until the solver has taken enough instances, before the next one is parsed
+					slots.acquire();
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				LoadedInstance loaded;
+				try {
+					loaded = new LoadedInstance(file, load(file, numberOfCustomers, binarypath, granularity), null);
+				}
+				catch(IOException e) {
+					loaded = new LoadedInstance(file, null, e);
+				}
+				catch(RuntimeException e) {
+					loaded = new LoadedInstance(file, null, new IOException("Could not load " + file, e));
+				}
+				//the queue holds at most as many instances as there are permits, so this does not block
+				queue.add(loaded);
+			});
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Parse an instance and compute all tables that are shared by the solutions
+	 * @param file File, the instance file
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @param binarypath String, directory to which the instance is converted before loading, or null
+	 * @param granularity int, the number of candidates per customer, or 0 for none
+	 * @return ProblemInstance, the ready instance
+	 * @throws IOException
+	 */
+	private static ProblemInstance load(File file, int numberOfCustomers, String binarypath, int granularity) throws IOException {
+		String fname = file.getPath();
+		if(binarypath != null) {
+			//convert the instance once, so that the validation does not need to parse or compute distances
+			String binFile = binarypath + file.getName() + ".bin";
+			BinaryInstance.convert(fname, binFile, true);
+			fname = binFile;
+		}
+		ProblemInstance instance = ProblemInstance.load(fname, numberOfCustomers);
+		instance.getCompatibility();
+		if(granularity > 0) {
+			instance.getCandidates(granularity, true);
+		}
+		return instance;
+	}
+
+	/**
+	 * Wait for the next ready instance
+	 * @return LoadedInstance, the instance, or null if all instances of the directory have been taken
+	 * @throws IOException if the instance could not be loaded or the waiting thread is interrupted
+	 */
+	public LoadedInstance take() throws IOException {
+		if(taken == total) {
+			return null;
+		}
+		LoadedInstance loaded;
+		try {
+			loaded = queue.take();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for an instance");
+		}
+		taken++;
+		//the instance belongs to the solver now, so the next one may be loaded
+		slots.release();
+		if(loaded.error != null) {
+			throw loaded.error;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Accessor for the number of instances in the directory
+	 * @return int, the number of instances
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Stop loading the instances that have not been taken yet
+	 */
+	@Override
+	public void close() {
+		pool.shutdownNow();
+		queue.clear();
+	}
+}
@@ -0,0 +1,33 @@
+package representation;
+import java.io.IOException;
+
+/**
+ * Interface for parsers of an instance format, which are registered in InstanceReaders
+ * @author Tom Decke
+ *
+ */
+public interface InstanceReader {
+
+	/**
+	 * Accessor for the name of the format
+	 * @return String, the name
+	 */
+	public String getFormat();
+
+	/**
+	 * Check if a file is in the format of this reader, by its name or its first bytes
+	 * @param fname String, name of the file
+	 * @return boolean, true if the file can be read
+	 * @throws IOException
+	 */
+	public boolean canRead(String fname) throws IOException;
+
+	/**
+	 * Read the first customers of an instance file
+	 * @param fname String, name of the file
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @return InstanceSource, the parsed instance
+	 * @throws IOException
+	 */
+	public InstanceSource read(String fname, int numberOfCustomers) throws IOException;
+}
@@ -0,0 +1,126 @@
+package representation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the instance formats that can be read.
+ * The readers are asked in order, readers registered later are asked before the built-in ones.
+ * Built in are the binary format, CVRPLIB/TSPLIB files and the Solomon layout (also used by the Gehring-Homberger instances),
+ * which is the fallback for all other files.
+ * @author Tom Decke
+ *
+ */
+public final class InstanceReaders {
+
+	/**reader for binary instances*/
+	public static final InstanceReader BINARY = new InstanceReader() {
+		public String getFormat() {
+			return "binary";
+		}
+
+		public boolean canRead(String fname) throws IOException {
+			return BinaryInstance.isBinary(fname);
+		}
+
+		public InstanceSource read(String fname, int numberOfCustomers) throws IOException {
+			return new BinaryInstance(fname, numberOfCustomers);
+		}
+	};
+
+	/**reader for CVRPLIB/TSPLIB instances, which are recognised by the extension .vrp or a leading NAME entry*/
+	public static final InstanceReader CVRPLIB = new InstanceReader() {
+		public String getFormat() {
+			return "cvrplib";
+		}
+
+		public boolean canRead(String fname) throws IOException {
+			if(fname.toLowerCase().endsWith(".vrp")) {
+				return true;
+			}
+			String head = head(fname).trim().toUpperCase();
+			return head.startsWith("NAME") && head.indexOf(':') > 0;
+		}
+
+		public InstanceSource read(String fname, int numberOfCustomers) throws IOException {
+			return new CvrplibReader(fname, numberOfCustomers);
+		}
+	};
+
+	/**reader for instances in the layout of the Solomon and the Gehring-Homberger benchmarks*/
+	public static final InstanceReader SOLOMON = new InstanceReader() {
+		public String getFormat() {
+			return "solomon";
+		}
+
+		public boolean canRead(String fname) {
+			return true;
+		}
+
+		public InstanceSource read(String fname, int numberOfCustomers) throws IOException {
+			return new SolomonReader(fname, numberOfCustomers);
+		}
+	};
+
+	private static final int HEAD_SIZE = 64;
+	private static final CopyOnWriteArrayList<InstanceReader> readers = new CopyOnWriteArrayList<InstanceReader>();
+
+	static {
+		readers.add(BINARY);
+		readers.add(CVRPLIB);
+		readers.add(SOLOMON);
+	}
+
+	private InstanceReaders() {
+	}
+
+	/**
+	 * Register a reader, which is asked before all readers registered so far
+	 * @param reader InstanceReader, the reader
+	 */
+	public static void register(InstanceReader reader) {
+		readers.add(0, reader);
+	}
+
+	/**
+	 * Find the reader for a file
+	 * @param fname String, name of the file
+	 * @return InstanceReader, the first reader that can read the file
+	 * @throws IOException if no reader accepts the file
+	 */
+	public static InstanceReader find(String fname) throws IOException {
+		for(InstanceReader reader : readers) {
+			if(reader.canRead(fname)) {
+				return reader;
+			}
+		}
+		throw new IOException("Unknown instance format: " + fname);
+	}
+
+	/**
+	 * Read the first customers of an instance file with the matching reader
+	 * @param fname String, name of the file
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @return InstanceSource, the parsed instance
+	 * @throws IOException
+	 */
+	public static InstanceSource open(String fname, int numberOfCustomers) throws IOException {
+		return find(fname).read(fname, numberOfCustomers);
+	}
+
+	/**
+	 * Read the first bytes of a file as text
+	 * @param fname String, name of the file
+	 * @return String, the first bytes
+	 * @throws IOException
+	 */
+	private static String head(String fname) throws IOException {
+		try(InputStream in = Files.newInputStream(Paths.get(fname))){
+			byte[] bytes = in.readNBytes(HEAD_SIZE);
+			return new String(bytes, StandardCharsets.US_ASCII);
+		}
+	}
+}
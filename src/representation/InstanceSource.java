@@ -0,0 +1,64 @@
+package representation;
+
+/**
+ * Interface for the sources a VRP-instance can be created from
+ * @author Tom Decke
+ *
+ */
+public interface InstanceSource {
+
+	/**indices of the customer columns*/
+	public static final int CUST_NO = 0, X_COORD = 1, Y_COORD = 2, DEMAND = 3, READY_TIME = 4, DUE_DATE = 5, SERVICE_TIME = 6;
+	/**number of customer columns*/
+	public static final int COLUMNS = 7;
+
+	/**
+	 * Accessor for the name of the instance
+	 * @return String, the name
+	 */
+	public String getName();
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getNumVehicles();
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity();
+
+	/**
+	 * Accessor for the number of customers (without the depot)
+	 * @return int, the number of customers
+	 */
+	public int getNumCustomers();
+
+	/**
+	 * Create the customer at the given position of the instance
+	 * @param i int, the position, where position 0 is the depot
+	 * @return Customer, a new customer with the data of the position
+	 */
+	public Customer createCustomer(int i);
+
+	/**
+	 * Accessor for a column of the customer data
+	 * @param column int, index of the column (0 = customer number, ..., 6 = service time)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column);
+
+	/**
+	 * Accessor for precomputed distances
+	 * @return DistanceStore, the stored distances, or null if the source has no distances
+	 */
+	public DistanceStore getDistances();
+
+	/**
+	 * Check if the distances are given explicitly, instead of being the euclidean distances of the coordinates
+	 * @return boolean, true if the distances cannot be calculated from the coordinates
+	 */
+	public boolean hasExplicitDistances();
+}
@@ -0,0 +1,30 @@
+package representation;
+import java.nio.DoubleBuffer;
+
+/**
+ * Distance store reading a row-major matrix directly from a (memory-mapped) buffer
+ * @author Tom Decke
+ *
+ */
+public class MappedDistanceStore extends DistanceStore {
+
+	private final DoubleBuffer distance;
+	private final int stride;
+
+	/**
+	 * Constructor for a store on top of a buffer
+	 * @param distance DoubleBuffer, the buffer containing the matrix
+	 * @param size int, number of customers (including the depot) that are used
+	 * @param stride int, length of a row in the buffer, which is at least size
+	 */
+	public MappedDistanceStore(DoubleBuffer distance, int size, int stride) {
+		super(size);
+		this.distance = distance;
+		this.stride = stride;
+	}
+
+	@Override
+	public double get(int i, int j) {
+		return distance.get(i * stride + j);
+	}
+}
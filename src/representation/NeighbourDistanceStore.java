@@ -0,0 +1,43 @@
+package representation;
+
+/**
+ * On-the-fly distance store, which also provides the k nearest neighbours of each customer in a table.
+ * The distances are calculated from the coordinates, as a square root is cheaper than finding a pair in the table.
+ * @author Tom Decke
+ *
+ */
+public class NeighbourDistanceStore extends EuclideanDistanceStore {
+
+	/**default number of neighbours per customer*/
+	public static final int DEFAULT_NEIGHBOURS = 16;
+
+	private final NeighbourTable table;
+
+	/**
+	 * Constructor for a store with the default number of neighbours
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public NeighbourDistanceStore(int[] x, int[] y) {
+		this(x, y, DEFAULT_NEIGHBOURS);
+	}
+
+	/**
+	 * Constructor for a store with a given number of neighbours
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 * @param k int, the number of neighbours per customer
+	 */
+	public NeighbourDistanceStore(int[] x, int[] y, int k) {
+		super(x, y);
+		table = NeighbourTable.nearest(x, y, k);
+	}
+
+	/**
+	 * Accessor for the neighbour table
+	 * @return NeighbourTable, the k nearest neighbours of each customer
+	 */
+	public NeighbourTable getTable() {
+		return table;
+	}
+}
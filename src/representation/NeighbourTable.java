@@ -0,0 +1,233 @@
+package representation;
+import java.util.Arrays;
+
+/**
+ * Table of the k nearest neighbours of each customer, kept in a single primitive array.
+ * The neighbours of a customer are ordered by increasing distance.
+ * @author Tom Decke
+ *
+ */
+public class NeighbourTable {
+
+	private final int size;
+	private final int k;
+	private final int[] neighbours; // neighbours[i*k+r] is the r-th nearest neighbour of i
+
+	/**
+	 * Constructor for a table from precomputed neighbour lists
+	 * @param neighbours int[], the neighbour lists in row-major order
+	 * @param size int, the number of customers (including the depot)
+	 * @param k int, the length of each list
+	 */
+	public NeighbourTable(int[] neighbours, int size, int k) {
+		this.neighbours = neighbours;
+		this.size = size;
+		this.k = k;
+	}
+
+	/**
+	 * Determine the k nearest neighbours by euclidean distance for all customers.
+	 * The customers are swept in order of their x-coordinate, so that only customers
+	 * whose horizontal distance is below the current k-th best distance are considered.
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 * @param maxK int, the number of neighbours per customer (at most size-1 are used)
+	 * @return NeighbourTable, the table
+	 */
+	public static NeighbourTable nearest(int[] x, int[] y, int maxK) {
+		int size = x.length;
+		int k = Math.max(0, Math.min(maxK, size-1));
+		if(k == 0) {
+			return new NeighbourTable(new int[0], size, 0);
+		}
+
+		//order the customers by x-coordinate
+		long[] keys = new long[size];
+		for(int i = 0; i < size; i++) {
+			keys[i] = ((long) x[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[size];
+		int[] position = new int[size];
+		for(int p = 0; p < size; p++) {
+			order[p] = (int) keys[p];
+			position[order[p]] = p;
+		}
+
+		int[] neighbours = new int[size * k];
+		ParallelRows.run(size, (from, to) -> sweep(x, y, k, order, position, neighbours, from, to));
+		return new NeighbourTable(neighbours, size, k);
+	}
+
+	/**
+	 * Determine the neighbour lists for a block of customers, each block uses its own heap
+	 */
+	private static void sweep(int[] x, int[] y, int k, int[] order, int[] position, int[] neighbours, int from, int to) {
+		int size = x.length;
+		double[] heapDist = new double[k];
+		int[] heapId = new int[k];
+		for(int i = from; i < to; i++) {
+			int heapSize = 0;
+			int left = position[i] - 1;
+			int right = position[i] + 1;
+			boolean goLeft = left >= 0, goRight = right < size;
+			while(goLeft || goRight) {
+				//alternate between both directions, as long as they can contain closer customers
+				if(goLeft) {
+					int j = order[left];
+					double dx = x[i] - x[j];
+					if(heapSize == k && dx * dx > heapDist[0]) {
+						goLeft = false;
+					}
+					else {
+						double dy = y[i] - y[j];
+						heapSize = offer(heapDist, heapId, heapSize, dx * dx + dy * dy, j);
+						goLeft = --left >= 0;
+					}
+				}
+				if(goRight) {
+					int j = order[right];
+					double dx = x[i] - x[j];
+					if(heapSize == k && dx * dx > heapDist[0]) {
+						goRight = false;
+					}
+					else {
+						double dy = y[i] - y[j];
+						heapSize = offer(heapDist, heapId, heapSize, dx * dx + dy * dy, j);
+						goRight = ++right < size;
+					}
+				}
+			}
+
+			//empty the heap from the farthest to the nearest neighbour
+			for(int r = heapSize - 1; r >= 0; r--) {
+				neighbours[i*k+r] = heapId[0];
+				heapSize = poll(heapDist, heapId, heapSize);
+			}
+		}
+	}
+
+	/**
+	 * Offer a candidate to a bounded max-heap of the nearest customers
+	 * @return int, the new size of the heap
+	 */
+	private static int offer(double[] dist, int[] id, int heapSize, double d, int j) {
+		if(heapSize == dist.length) {
+			//only replace the farthest candidate if the new one is closer
+			if(!closer(d, j, dist[0], id[0])) {
+				return heapSize;
+			}
+			dist[0] = d;
+			id[0] = j;
+			siftDown(dist, id, heapSize, 0);
+			return heapSize;
+		}
+		int c = heapSize++;
+		dist[c] = d;
+		id[c] = j;
+		while(c > 0) {
+			int p = (c - 1) / 2;
+			if(!closer(dist[p], id[p], dist[c], id[c])) {
+				break;
+			}
+			swap(dist, id, p, c);
+			c = p;
+		}
+		return heapSize;
+	}
+
+	/**
+	 * Remove the farthest candidate from the max-heap
+	 * @return int, the new size of the heap
+	 */
+	private static int poll(double[] dist, int[] id, int heapSize) {
+		heapSize--;
+		dist[0] = dist[heapSize];
+		id[0] = id[heapSize];
+		siftDown(dist, id, heapSize, 0);
+		return heapSize;
+	}
+
+	private static void siftDown(double[] dist, int[] id, int heapSize, int p) {
+		while(true) {
+			int c = 2 * p + 1;
+			if(c >= heapSize) {
+				return;
+			}
+			if(c + 1 < heapSize && closer(dist[c], id[c], dist[c+1], id[c+1])) {
+				c++;
+			}
+			if(!closer(dist[p], id[p], dist[c], id[c])) {
+				return;
+			}
+			swap(dist, id, p, c);
+			p = c;
+		}
+	}
+
+	/**
+	 * Order candidates by distance, ties are broken by the lower index
+	 */
+	private static boolean closer(double d1, int id1, double d2, int id2) {
+		return d1 < d2 || (d1 == d2 && id1 < id2);
+	}
+
+	private static void swap(double[] dist, int[] id, int a, int b) {
+		double d = dist[a];
+		dist[a] = dist[b];
+		dist[b] = d;
+		int i = id[a];
+		id[a] = id[b];
+		id[b] = i;
+	}
+
+	/**
+	 * Determine the rank of j among the neighbours of i
+	 * @param i int, index of the customer
+	 * @param j int, index of the potential neighbour
+	 * @return int, the rank of j (0 for the nearest neighbour) or -1 if j is not a neighbour of i
+	 */
+	public int rank(int i, int j) {
+		int start = i * k;
+		for(int r = 0; r < k; r++) {
+			if(neighbours[start + r] == j) {
+				return r;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Accessor for a single neighbour
+	 * @param i int, index of the customer
+	 * @param r int, the rank of the neighbour
+	 * @return int, index of the r-th nearest neighbour of i
+	 */
+	public int getNeighbour(int i, int r) {
+		return neighbours[i * k + r];
+	}
+
+	/**
+	 * Accessor for the neighbour lists in row-major order
+	 * @return int[], the neighbour lists
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * Accessor for the number of neighbours per customer
+	 * @return int, k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Accessor for the number of customers (including the depot)
+	 * @return int, the size
+	 */
+	public int size() {
+		return size;
+	}
+}
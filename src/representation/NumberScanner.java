@@ -0,0 +1,248 @@
+package representation;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scanner that reads a whole text file in one go and tokenizes it on byte level.
+ * Numbers are converted directly from the bytes, so no String is created per token.
+ * @author Tom Decke
+ *
+ */
+public class NumberScanner {
+
+	private final byte[] data;
+	private final int limit;
+	private int pos;
+
+	/**
+	 * Constructor to scan a file
+	 * @param fname String, name of the file to scan
+	 * @throws IOException
+	 */
+	public NumberScanner(String fname) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(fname), StandardOpenOption.READ)){
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to scan: " + fname);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				//keep reading until the file is consumed
+			}
+			this.data = buffer.array();
+			this.limit = buffer.position();
+		}
+		this.pos = 0;
+	}
+
+	/**
+	 * Constructor to scan text that is already in memory
+	 * @param data byte[], the text
+	 * @param length int, the number of valid bytes in data
+	 */
+	public NumberScanner(byte[] data, int length) {
+		this.data = data;
+		this.limit = length;
+		this.pos = 0;
+	}
+
+	/**
+	 * Check if there are tokens left
+	 * @return boolean, true if there is at least one more token
+	 */
+	public boolean hasNext() {
+		skipWhitespace();
+		return pos < limit;
+	}
+
+	/**
+	 * Check if the next token is a number
+	 * @return boolean, true if the next token starts like a number
+	 */
+	public boolean hasNextNumber() {
+		skipWhitespace();
+		if(pos >= limit) {
+			return false;
+		}
+		byte b = data[pos];
+		if(isDigit(b)) {
+			return true;
+		}
+		//signs and leading decimal points need a digit (or point) to follow
+		if((b == '-' || b == '+' || b == '.') && pos+1 < limit) {
+			byte n = data[pos+1];
+			return isDigit(n) || (b != '.' && n == '.');
+		}
+		return false;
+	}
+
+	/**
+	 * Read the next token as String
+	 * @return String, the token
+	 * @throws IOException if there are no tokens left
+	 */
+	public String next() throws IOException {
+		skipWhitespace();
+		if(pos >= limit) {
+			throw new IOException("Unexpected end of input");
+		}
+		int start = pos;
+		skipToken();
+		return new String(data, start, pos-start, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Skip tokens until a token equal to word (ignoring case) was consumed
+	 * @param word String, the token to look for
+	 * @return boolean, true if the word was found, false if the input ended before
+	 */
+	public boolean skipTo(String word) {
+		while(hasNext()) {
+			int start = pos;
+			skipToken();
+			if(tokenEquals(start, pos, word)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skip tokens until the next token is a number
+	 * @return boolean, true if a number follows, false if the input ended before
+	 */
+	public boolean skipToNumber() {
+		while(hasNext()) {
+			if(hasNextNumber()) {
+				return true;
+			}
+			skipToken();
+		}
+		return false;
+	}
+
+	/**
+	 * Skip the rest of the current line
+	 */
+	public void skipLine() {
+		while(pos < limit && data[pos] != '\n') {
+			pos++;
+		}
+	}
+
+	/**
+	 * Read the next token as integer, decimals are rounded
+	 * @return int, the number
+	 * @throws IOException if the next token is not a number
+	 */
+	public int nextInt() throws IOException {
+		skipWhitespace();
+		int start = pos;
+		boolean negative = false;
+		if(pos < limit && (data[pos] == '-' || data[pos] == '+')) {
+			negative = data[pos] == '-';
+			pos++;
+		}
+		int digitsStart = pos;
+		long value = 0;
+		while(pos < limit && isDigit(data[pos])) {
+			value = value * 10 + (data[pos] - '0');
+			pos++;
+		}
+		//fall back to the general conversion for decimals and exponents
+		if(pos < limit && !isWhitespace(data[pos])) {
+			pos = start;
+			return (int) Math.round(nextDouble());
+		}
+		if(pos == digitsStart || value > Integer.MAX_VALUE + 1L) {
+			pos = start;
+			throw new IOException("Expected an integer at byte " + start + " but found: " + peekToken());
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Read the next token as double
+	 * @return double, the number
+	 * @throws IOException if the next token is not a number
+	 */
+	public double nextDouble() throws IOException {
+		skipWhitespace();
+		int start = pos;
+		skipToken();
+		//integers are converted directly, everything else is left to the JDK
+		long value = 0;
+		int i = start;
+		boolean negative = false;
+		if(i < pos && (data[i] == '-' || data[i] == '+')) {
+			negative = data[i] == '-';
+			i++;
+		}
+		int digitsStart = i;
+		while(i < pos && isDigit(data[i]) && i - digitsStart < 18) {
+			value = value * 10 + (data[i] - '0');
+			i++;
+		}
+		if(i == pos && i > digitsStart) {
+			return negative ? -value : value;
+		}
+		try {
+			return Double.parseDouble(new String(data, start, pos-start, StandardCharsets.US_ASCII));
+		} catch(NumberFormatException nfe) {
+			pos = start;
+			throw new IOException("Expected a number at byte " + start + " but found: " + peekToken());
+		}
+	}
+
+	/**
+	 * Determine the next token without consuming it
+	 * @return String, the next token or an empty String at the end of the input
+	 */
+	private String peekToken() {
+		skipWhitespace();
+		int end = pos;
+		while(end < limit && !isWhitespace(data[end])) {
+			end++;
+		}
+		return new String(data, pos, end-pos, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Compare the bytes of a token with a word, ignoring case
+	 */
+	private boolean tokenEquals(int start, int end, String word) {
+		if(end - start != word.length()) {
+			return false;
+		}
+		for(int i = 0; i < word.length(); i++) {
+			if(Character.toUpperCase((char) data[start+i]) != Character.toUpperCase(word.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void skipToken() {
+		while(pos < limit && !isWhitespace(data[pos])) {
+			pos++;
+		}
+	}
+
+	private void skipWhitespace() {
+		while(pos < limit && isWhitespace(data[pos])) {
+			pos++;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b <= ' ';
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+}
@@ -0,0 +1,102 @@
+package representation;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helper to fill row-based tables (distances, neighbour lists, ...) in parallel by fork/join over blocks of rows.
+ * Each row has to be computed independently of the others, so that the result does not depend on the number of threads.
+ * Single-threaded builds can be forced with the system property vrp.singleThreaded or setSingleThreaded.
+ * @author Tom Decke
+ *
+ */
+public final class ParallelRows {
+
+	/**the smallest number of rows that is computed by one task*/
+	public static final int MIN_BLOCK = 16;
+
+	private static volatile boolean singleThreaded = Boolean.getBoolean("vrp.singleThreaded");
+
+	/**
+	 * Interface for the computation of a block of rows
+	 */
+	public interface Body {
+		/**
+		 * Compute the rows of a block
+		 * @param from int, the first row (inclusive)
+		 * @param to int, the last row (exclusive)
+		 */
+		void compute(int from, int to);
+	}
+
+	private ParallelRows() {
+	}
+
+	/**
+	 * Compute all rows of a table, in parallel unless single-threaded builds are forced
+	 * @param rows int, the number of rows
+	 * @param body Body, the computation of a block of rows
+	 */
+	public static void run(int rows, Body body) {
+		run(rows, MIN_BLOCK, body);
+	}
+
+	/**
+	 * Compute all rows of a table, in parallel unless single-threaded builds are forced
+	 * @param rows int, the number of rows
+	 * @param minBlock int, the smallest number of rows that is computed by one task, small for expensive rows
+	 * @param body Body, the computation of a block of rows
+	 */
+	public static void run(int rows, int minBlock, Body body) {
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+		if(singleThreaded || threads <= 1 || rows <= minBlock) {
+			body.compute(0, rows);
+			return;
+		}
+		//create several blocks per thread, so that rows of different length are balanced by work stealing
+		int block = Math.max(minBlock, rows / (8 * threads));
+		ForkJoinPool.commonPool().invoke(new Block(body, 0, rows, block));
+	}
+
+	/**
+	 * Force single-threaded builds, e.g. for reproducibility tests
+	 * @param single boolean, true to compute all rows on the calling thread
+	 */
+	public static void setSingleThreaded(boolean single) {
+		singleThreaded = single;
+	}
+
+	/**
+	 * Check if single-threaded builds are forced
+	 * @return boolean, true if all rows are computed on the calling thread
+	 */
+	public static boolean isSingleThreaded() {
+		return singleThreaded;
+	}
+
+	/**
+	 * Task that splits its rows in halves until they are small enough to be computed directly
+	 */
+	private static class Block extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final Body body;
+		private final int from, to, block;
+
+		Block(Body body, int from, int to, int block) {
+			this.body = body;
+			this.from = from;
+			this.to = to;
+			this.block = block;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= block) {
+				body.compute(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Block(body, from, mid, block), new Block(body, mid, to, block));
+		}
+	}
+}
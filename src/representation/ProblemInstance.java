@@ -0,0 +1,287 @@
+package representation;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Immutable data of a VRP-instance (customers, fleet and distances).
+ * The customer data is also available as primitive arrays indexed by customer, so that scans do not need to touch the customer objects.
+ * A loaded instance can be shared by any number of solutions, i.e. VRP-objects,
+ * each of which only allocates its own customers and vehicles.
+ * @author Tom Decke
+ *
+ */
+public final class ProblemInstance {
+
+	private final String name;
+	private final int n, m; // number of customers and number of vehicles
+	private final int capacity;
+	private final int[][] columns; // customer data, index 0 is the depot
+	private final int[] ready, due, service; // time windows with two more slots for the depot at the start and at the end of a tour
+	private final DistanceStore distance;
+	private final SpatialGrid grid; // proximity queries on the coordinates
+	private TimeWindowCompatibility compatibility; // built on demand
+	private final HashMap<Integer, CandidateList> candidates = new HashMap<Integer, CandidateList>(); // built on demand
+
+	/**
+	 * Constructor to create a problem instance from a parsed instance, using a flat distance matrix
+	 * @param source InstanceSource, the parsed instance
+	 */
+	public ProblemInstance(InstanceSource source) {
+		this(source, DistanceMode.FLAT);
+	}
+
+	/**
+	 * Constructor to create a problem instance from a parsed instance
+	 * @param source InstanceSource, the parsed instance
+	 * @param mode DistanceMode, the way the distances are to be stored
+	 */
+	public ProblemInstance(InstanceSource source, DistanceMode mode) {
+		this.name = source.getName();
+		this.n = source.getNumCustomers();
+		this.m = source.getNumVehicles();
+		this.capacity = source.getCapacity();
+		this.columns = new int[InstanceSource.COLUMNS][];
+		for(int c = 0; c < InstanceSource.COLUMNS; c++) {
+			columns[c] = source.getColumn(c).clone();
+		}
+		//the depot at the start of a tour has to be left at time 0, the one at the end has to be reached by the due date of the depot
+		ready = Arrays.copyOf(columns[InstanceSource.READY_TIME], n + 3);
+		due = Arrays.copyOf(columns[InstanceSource.DUE_DATE], n + 3);
+		service = Arrays.copyOf(columns[InstanceSource.SERVICE_TIME], n + 3);
+		due[getEndSlot()] = due[0];
+
+		//use stored row-major distances for flat storage or if they are explicit, otherwise calculate the euclidean distances
+		DistanceStore stored = mode == DistanceMode.FLAT || source.hasExplicitDistances() ? source.getDistances() : null;
+		if(stored != null) {
+			distance = stored;
+		}
+		else {
+			distance = DistanceStore.create(mode, columns[InstanceSource.X_COORD], columns[InstanceSource.Y_COORD]);
+		}
+		grid = new SpatialGrid(columns[InstanceSource.X_COORD], columns[InstanceSource.Y_COORD]);
+	}
+
+	/**
+	 * Load all customers of an instance file
+	 * @param fname String, name of the file in any of the formats registered in InstanceReaders
+	 * @return ProblemInstance, the loaded instance
+	 * @throws IOException
+	 */
+	public static ProblemInstance load(String fname) throws IOException {
+		return new ProblemInstance(open(fname, -1));
+	}
+
+	/**
+	 * Load the first customers of an instance file
+	 * @param fname String, name of the file in any of the formats registered in InstanceReaders
+	 * @param numberOfCustomers int, the number of customers to use
+	 * @return ProblemInstance, the loaded instance
+	 * @throws IOException
+	 */
+	public static ProblemInstance load(String fname, int numberOfCustomers) throws IOException {
+		return new ProblemInstance(open(fname, numberOfCustomers));
+	}
+
+	/**
+	 * Load the first customers of an instance file with a given distance storage
+	 * @param fname String, name of the file in any of the formats registered in InstanceReaders
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @param mode DistanceMode, the way the distances are to be stored
+	 * @return ProblemInstance, the loaded instance
+	 * @throws IOException
+	 */
+	public static ProblemInstance load(String fname, int numberOfCustomers, DistanceMode mode) throws IOException {
+		return new ProblemInstance(open(fname, numberOfCustomers), mode);
+	}
+
+	/**
+	 * Open an instance file in any of the formats registered in InstanceReaders
+	 * @param fname String, name of the file
+	 * @param numberOfCustomers int, the number of customers to use, or -1 to use all of them
+	 * @return InstanceSource, the opened instance
+	 * @throws IOException
+	 */
+	public static InstanceSource open(String fname, int numberOfCustomers) throws IOException {
+		return InstanceReaders.open(fname, numberOfCustomers);
+	}
+
+	/**
+	 * Create a new solution for this instance, in which every customer is served by its own vehicle
+	 * @return VRP, the new solution
+	 */
+	public VRP createSolution() {
+		return new VRP(this);
+	}
+
+	/**
+	 * Create a new customer object with the data of the instance
+	 * @param i int, the index of the customer, where index 0 is the depot
+	 * @return Customer, the new customer
+	 */
+	public Customer createCustomer(int i) {
+		return new Customer(columns[InstanceSource.CUST_NO][i], columns[InstanceSource.X_COORD][i], columns[InstanceSource.Y_COORD][i],
+				columns[InstanceSource.DEMAND][i], columns[InstanceSource.READY_TIME][i], columns[InstanceSource.DUE_DATE][i],
+				columns[InstanceSource.SERVICE_TIME][i]);
+	}
+
+	/**
+	 * Determine the distance between two customers
+	 * @param i int, index of the first customer
+	 * @param j int, index of the second customer
+	 * @return double, the euclidean distance
+	 */
+	public double distance(int i, int j) {
+		return distance.get(i, j);
+	}
+
+	/**
+	 * Get the candidate lists for granular neighbourhoods, which are built on the first request
+	 * and shared by all solutions afterwards
+	 * @param k int, the number of nearest customers per customer
+	 * @param timeWindows boolean, whether or not customers with incompatible time windows are to be excluded
+	 * @return CandidateList, the candidate lists
+	 */
+	public synchronized CandidateList getCandidates(int k, boolean timeWindows) {
+		Integer key = timeWindows ? -k-1 : k;
+		CandidateList list = candidates.get(key);
+		if(list == null) {
+			list = CandidateList.build(this, k, timeWindows);
+			candidates.put(key, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Get the time window compatibility of all pairs of customers, which is built on the first request
+	 * and shared by all solutions afterwards
+	 * @return TimeWindowCompatibility, the compatibility bitset, or null if it would exceed its size limit
+	 */
+	public synchronized TimeWindowCompatibility getCompatibility() {
+		if(compatibility == null && TimeWindowCompatibility.fits(n+1)) {
+			compatibility = new TimeWindowCompatibility(this);
+		}
+		return compatibility;
+	}
+
+	/**
+	 * Accessor for a column of the customer data, which must not be modified
+	 * @param column int, index of the column (see InstanceSource)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Accessor for the x-coordinates as array indexed by customer, which must not be modified
+	 * @return int[], the x-coordinates, where index 0 is the depot
+	 */
+	public int[] getXCoords() {
+		return columns[InstanceSource.X_COORD];
+	}
+
+	/**
+	 * Accessor for the y-coordinates as array indexed by customer, which must not be modified
+	 * @return int[], the y-coordinates, where index 0 is the depot
+	 */
+	public int[] getYCoords() {
+		return columns[InstanceSource.Y_COORD];
+	}
+
+	/**
+	 * Accessor for the demands as array indexed by customer, which must not be modified
+	 * @return int[], the demands, where index 0 is the depot
+	 */
+	public int[] getDemands() {
+		return columns[InstanceSource.DEMAND];
+	}
+
+	/**
+	 * Accessor for the ready times as array indexed by customer, which must not be modified
+	 * @return int[], the ready times, where index 0 is the depot and the slots after the customers are the depot at the ends of a tour
+	 */
+	public int[] getReadyTimes() {
+		return ready;
+	}
+
+	/**
+	 * Accessor for the due dates as array indexed by customer, which must not be modified
+	 * @return int[], the due dates, where index 0 is the depot and the slots after the customers are the depot at the ends of a tour
+	 */
+	public int[] getDueDates() {
+		return due;
+	}
+
+	/**
+	 * Accessor for the service times as array indexed by customer, which must not be modified
+	 * @return int[], the service times, where index 0 is the depot and the slots after the customers are the depot at the ends of a tour
+	 */
+	public int[] getServiceTimes() {
+		return service;
+	}
+
+	/**
+	 * Accessor for the slot of the depot at the start of a tour in the time window arrays
+	 * @return int, the slot, whose ready time, due date and service time are 0
+	 */
+	public int getStartSlot() {
+		return n + 1;
+	}
+
+	/**
+	 * Accessor for the slot of the depot at the end of a tour in the time window arrays
+	 * @return int, the slot, whose due date is the one of the depot
+	 */
+	public int getEndSlot() {
+		return n + 2;
+	}
+
+	/**
+	 * Accessor for the distances, which are shared by all solutions
+	 * @return DistanceStore, the distances
+	 */
+	public DistanceStore getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Accessor for the spatial index over the customer coordinates
+	 * @return SpatialGrid, the grid
+	 */
+	public SpatialGrid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Accessor for the name of the instance
+	 * @return String, the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Accessor for the number of customers
+	 * @return int, the number of customers (without the depot)
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getM() {
+		return m;
+	}
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+}
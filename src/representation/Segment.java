@@ -0,0 +1,151 @@
+package representation;
+
+/**
+ * Summary of a sequence of consecutive customers, which allows to check the time windows and the load
+ * of any concatenation of sequences in O(1), following the segment concatenation of Vidal et al. (2013).
+ * The schedule of a sequence starts with the service of its first customer.
+ * Segments are mutable, so that the hot loops of the operators can reuse them without allocation.
+ * @author Tom Decke
+ *
+ */
+public class Segment {
+
+	private double duration; // time from the start of the first to the end of the last service, including waiting
+	private double earliest; // earliest start of the first service without waiting
+	private double latest; // latest start of the first service without violating a time window
+	private double waiting; // the waiting time that can not be avoided
+	private double warp; // the amount by which time windows are violated, 0 if the sequence is feasible
+	private int load; // the demand of the customers
+
+	/**
+	 * Set the segment to a single customer
+	 * @param c Customer, the customer
+	 * @return Segment, this segment
+	 */
+	public Segment set(Customer c) {
+		return set(c.getReadyTime(), c.getDueDate(), c.getServiceTime(), c.getDemand());
+	}
+
+	/**
+	 * Set the segment to a single customer
+	 * @param readyTime double, the ready time of the customer
+	 * @param dueDate double, the due date of the customer
+	 * @param serviceTime double, the service time of the customer
+	 * @param demand int, the demand of the customer
+	 * @return Segment, this segment
+	 */
+	public Segment set(double readyTime, double dueDate, double serviceTime, int demand) {
+		duration = serviceTime;
+		earliest = readyTime;
+		latest = dueDate;
+		waiting = 0;
+		warp = readyTime > dueDate ? readyTime - dueDate : 0;
+		load = demand;
+		return this;
+	}
+
+	/**
+	 * Set the segment to a single customer, reading its data from the arrays of the instance
+	 * @param instance ProblemInstance, the instance the customer belongs to
+	 * @param c int, index of the customer, which must not be the depot
+	 * @return Segment, this segment
+	 */
+	public Segment set(ProblemInstance instance, int c) {
+		return set(instance.getReadyTimes()[c], instance.getDueDates()[c], instance.getServiceTimes()[c], instance.getDemands()[c]);
+	}
+
+	/**
+	 * Copy another segment
+	 * @param s Segment, the segment to copy
+	 * @return Segment, this segment
+	 */
+	public Segment set(Segment s) {
+		duration = s.duration;
+		earliest = s.earliest;
+		latest = s.latest;
+		waiting = s.waiting;
+		warp = s.warp;
+		load = s.load;
+		return this;
+	}
+
+	/**
+	 * Set this segment to the concatenation of two segments, either of which may be this segment
+	 * @param first Segment, the sequence that is visited first
+	 * @param travel double, the travel time from the last customer of first to the first customer of second
+	 * @param second Segment, the sequence that is visited second
+	 * @return Segment, this segment
+	 */
+	public Segment concat(Segment first, double travel, Segment second) {
+		//time from the start of the first sequence to the arrival at the second one
+		double delta = first.duration - first.warp + travel;
+		double deltaWaiting = Math.max(second.earliest - delta - first.latest, 0);
+		double deltaWarp = Math.max(first.earliest + delta - second.latest, 0);
+
+		double e = Math.max(second.earliest - delta, first.earliest) - deltaWaiting;
+		double l = Math.min(second.latest - delta, first.latest) + deltaWarp;
+		duration = first.duration + second.duration + travel + deltaWaiting;
+		waiting = first.waiting + second.waiting + deltaWaiting;
+		warp = first.warp + second.warp + deltaWarp;
+		load = first.load + second.load;
+		earliest = e;
+		latest = l;
+		return this;
+	}
+
+	/**
+	 * Check if the time windows of the sequence can be met
+	 * @return boolean, true if no time window is violated
+	 */
+	public boolean isFeasible() {
+		return warp == 0;
+	}
+
+	/**
+	 * Accessor for the duration of the sequence
+	 * @return double, the time from the start of the first to the end of the last service
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Accessor for the earliest start of the sequence
+	 * @return double, the earliest start of the first service that does not lead to waiting
+	 */
+	public double getEarliest() {
+		return earliest;
+	}
+
+	/**
+	 * Accessor for the latest start of the sequence
+	 * @return double, the latest start of the first service that meets all time windows
+	 */
+	public double getLatest() {
+		return latest;
+	}
+
+	/**
+	 * Accessor for the waiting time of the sequence
+	 * @return double, the waiting time that can not be avoided
+	 */
+	public double getWaiting() {
+		return waiting;
+	}
+
+	/**
+	 * Accessor for the time warp of the sequence
+	 * @return double, the amount by which time windows are violated
+	 */
+	public double getWarp() {
+		return warp;
+	}
+
+	/**
+	 * Accessor for the load of the sequence
+	 * @return int, the demand of the customers
+	 */
+	public int getLoad() {
+		return load;
+	}
+}
@@ -0,0 +1,185 @@
+package representation;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for VRP-instances in the layout of the Solomon benchmark.
+ * The number of customers is inferred from the customer section of the file.
+ * @author Tom Decke
+ *
+ */
+public class SolomonReader implements InstanceSource {
+
+	private String name;
+	private int numVehicles, capacity;
+	private int numCustomers; // not counting the depot
+	private int[] custNo, xCoord, yCoord, demand, readyTime, dueDate, serviceTime;
+
+	/**
+	 * Constructor to read all customers of a Solomon-instance
+	 * @param fname String, name of the file containing the VRP-instance
+	 * @throws IOException
+	 */
+	public SolomonReader(String fname) throws IOException {
+		this(fname, -1);
+	}
+
+	/**
+	 * Constructor to read the first customers of a Solomon-instance
+	 * @param fname String, name of the file containing the VRP-instance
+	 * @param maxCustomers int, the number of customers to read, or -1 to read all of them
+	 * @throws IOException
+	 */
+	public SolomonReader(String fname, int maxCustomers) throws IOException {
+		this(new NumberScanner(fname), maxCustomers);
+	}
+
+	/**
+	 * Constructor to read a Solomon-instance from a scanner
+	 * @param sc NumberScanner, scanner positioned at the start of the instance
+	 * @param maxCustomers int, the number of customers to read, or -1 to read all of them
+	 * @throws IOException
+	 */
+	public SolomonReader(NumberScanner sc, int maxCustomers) throws IOException {
+		name = sc.next();
+
+		//read number and capacity of the vehicles
+		if(!sc.skipTo("VEHICLE") || !sc.skipToNumber()) {
+			throw new IOException("Missing VEHICLE section in instance " + name);
+		}
+		numVehicles = sc.nextInt();
+		capacity = sc.nextInt();
+
+		//skip the header of the customer section
+		if(!sc.skipTo("CUSTOMER") || !sc.skipToNumber()) {
+			throw new IOException("Missing CUSTOMER section in instance " + name);
+		}
+
+		//read the customer lines, the first of which is the depot
+		int expected = maxCustomers < 0 ? 128 : maxCustomers + 1;
+		allocate(expected);
+		int rows = 0;
+		while(sc.hasNextNumber() && (maxCustomers < 0 || rows <= maxCustomers)) {
+			if(rows == custNo.length) {
+				allocate(2 * rows);
+			}
+			custNo[rows] = sc.nextInt();
+			xCoord[rows] = sc.nextInt();
+			yCoord[rows] = sc.nextInt();
+			demand[rows] = sc.nextInt();
+			readyTime[rows] = sc.nextInt();
+			dueDate[rows] = sc.nextInt();
+			serviceTime[rows] = sc.nextInt();
+			rows++;
+		}
+
+		if(rows == 0) {
+			throw new IOException("No depot found in instance " + name);
+		}
+		if(maxCustomers >= 0 && rows <= maxCustomers) {
+			throw new IOException("Instance " + name + " contains " + (rows-1) + " customers, but " + maxCustomers + " were requested");
+		}
+		numCustomers = rows - 1;
+		allocate(rows);
+	}
+
+	/**
+	 * Resize the customer columns
+	 * @param size int, the new number of rows
+	 */
+	private void allocate(int size) {
+		if(custNo == null) {
+			custNo = new int[size];
+			xCoord = new int[size];
+			yCoord = new int[size];
+			demand = new int[size];
+			readyTime = new int[size];
+			dueDate = new int[size];
+			serviceTime = new int[size];
+		}
+		else if(custNo.length != size) {
+			custNo = Arrays.copyOf(custNo, size);
+			xCoord = Arrays.copyOf(xCoord, size);
+			yCoord = Arrays.copyOf(yCoord, size);
+			demand = Arrays.copyOf(demand, size);
+			readyTime = Arrays.copyOf(readyTime, size);
+			dueDate = Arrays.copyOf(dueDate, size);
+			serviceTime = Arrays.copyOf(serviceTime, size);
+		}
+	}
+
+	/**
+	 * Create the customer at the given row of the customer section
+	 * @param i int, the row, where row 0 is the depot
+	 * @return Customer, a new customer with the data of the row
+	 */
+	public Customer createCustomer(int i) {
+		return new Customer(custNo[i], xCoord[i], yCoord[i], demand[i], readyTime[i], dueDate[i], serviceTime[i]);
+	}
+
+	/**
+	 * Accessor for the name of the instance
+	 * @return String, the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Accessor for the number of vehicles
+	 * @return int, the number of vehicles
+	 */
+	public int getNumVehicles() {
+		return numVehicles;
+	}
+
+	/**
+	 * Accessor for the capacity of the vehicles
+	 * @return int, the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Accessor for the number of customers (without the depot)
+	 * @return int, the number of customers
+	 */
+	public int getNumCustomers() {
+		return numCustomers;
+	}
+
+	/**
+	 * Text instances do not contain distances
+	 * @return DistanceStore, always null
+	 */
+	public DistanceStore getDistances() {
+		return null;
+	}
+
+	/**
+	 * The distances of text instances are euclidean
+	 * @return boolean, always false
+	 */
+	public boolean hasExplicitDistances() {
+		return false;
+	}
+
+	/**
+	 * Accessor for a column of the customer section
+	 * @param column int, index of the column (see InstanceSource)
+	 * @return int[], the values of the column, where index 0 is the depot
+	 */
+	public int[] getColumn(int column) {
+		switch(column) {
+		case CUST_NO: return custNo;
+		case X_COORD: return xCoord;
+		case Y_COORD: return yCoord;
+		case DEMAND: return demand;
+		case READY_TIME: return readyTime;
+		case DUE_DATE: return dueDate;
+		case SERVICE_TIME: return serviceTime;
+		default: throw new IllegalArgumentException("No such column: " + column);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package representation;
+import java.util.Arrays;
+
+/**
+ * Copy of a complete solution (fleet, tours, loads, distances and time window values) in primitive arrays.
+ * Capturing and restoring take O(n + m), and a snapshot that is captured again reuses its arrays,
+ * so that best solutions can be kept and searches be restarted without allocating customers and vehicles.
+ * @author Tom Decke
+ *
+ */
+public class SolutionSnapshot {
+
+	private final ProblemInstance instance;
+	private int numVehicles; // size of the fleet
+	private int spare; // index of the empty spare vehicle
+	private int nextId; // id of the next virtual vehicle
+	private int[] routeStart; // the tour of vehicle i consists of routes[routeStart[i]] ... routes[routeStart[i+1]-1]
+	private final int[] routes;
+	private int[] ids, costOfUse, loads;
+	private double[] distances, costs;
+	private double[] depotTimes; // earliest and latest start of the first and the last depot customer of each vehicle
+	private final double[] earliestStart, latestStart; // index 0 is not used, as the depot has no times of its own
+
+	/**
+	 * Constructor to take a snapshot of a solution
+	 * @param vrp VRP, the solution
+	 */
+	public SolutionSnapshot(VRP vrp) {
+		instance = vrp.getInstance();
+		int n = vrp.getN();
+		routes = new int[n];
+		earliestStart = new double[n + 1];
+		latestStart = new double[n + 1];
+		routeStart = new int[0];
+		capture(vrp);
+	}
+
+	/**
+	 * Overwrite the snapshot with the current state of a solution
+	 * @param vrp VRP, a solution of the same problem instance
+	 */
+	public void capture(VRP vrp) {
+		checkInstance(vrp);
+		Vehicle[] fleet = vrp.getVehicle();
+		numVehicles = fleet.length;
+		spare = vrp.getSpare().getIndex();
+		nextId = vrp.getNextId();
+		if(routeStart.length < numVehicles + 1) {
+			int size = Math.max(numVehicles + 1, 2 * routeStart.length);
+			routeStart = new int[size];
+			ids = new int[size];
+			costOfUse = new int[size];
+			loads = new int[size];
+			distances = new double[size];
+			costs = new double[size];
+			depotTimes = new double[4 * size];
+		}
+
+		int next = 0;
+		for(int i = 0; i < numVehicles; i++) {
+			Vehicle v = fleet[i];
+			routeStart[i] = next;
+			System.arraycopy(v.getRoute(), 1, routes, next, v.getRouteLength());
+			next += v.getRouteLength();
+			ids[i] = v.getId();
+			costOfUse[i] = v.getCostOfUse();
+			loads[i] = v.getLoad();
+			distances[i] = v.getDistance();
+			costs[i] = v.getCost();
+			depotTimes[4 * i] = v.getFirstCustomer().getEarliestStart();
+			depotTimes[4 * i + 1] = v.getFirstCustomer().getLatestStart();
+			depotTimes[4 * i + 2] = v.getLastCustomer().getEarliestStart();
+			depotTimes[4 * i + 3] = v.getLastCustomer().getLatestStart();
+		}
+		routeStart[numVehicles] = next;
+
+		Customer[] customers = vrp.getCustomer();
+		for(int c = 1; c < customers.length; c++) {
+			earliestStart[c] = customers[c].getEarliestStart();
+			latestStart[c] = customers[c].getLatestStart();
+		}
+	}
+
+	/**
+	 * Set a solution back to the state of the snapshot.
+	 * Option matrices that were created for the solution before are not adapted.
+	 * @param vrp VRP, a solution of the same problem instance, e.g. the one the snapshot was taken of
+	 */
+	public void restore(VRP vrp) {
+		checkInstance(vrp);
+		vrp.restoreFleet(numVehicles, spare, nextId);
+		Vehicle[] fleet = vrp.getVehicle();
+		for(int i = 0; i < numVehicles; i++) {
+			Vehicle v = fleet[i];
+			v.setId(ids[i]);
+			v.setCostOfUse(costOfUse[i]);
+			v.setTour(routes, routeStart[i], routeStart[i + 1]);
+			v.setLoad(loads[i]);
+			v.setDistance(distances[i]);
+			v.setCost(costs[i]);
+			v.getFirstCustomer().setEarliestStart(depotTimes[4 * i]);
+			v.getFirstCustomer().setLatestStart(depotTimes[4 * i + 1]);
+			v.getLastCustomer().setEarliestStart(depotTimes[4 * i + 2]);
+			v.getLastCustomer().setLatestStart(depotTimes[4 * i + 3]);
+		}
+
+		Customer[] customers = vrp.getCustomer();
+		for(int c = 1; c < customers.length; c++) {
+			customers[c].setEarliestStart(earliestStart[c]);
+			customers[c].setLatestStart(latestStart[c]);
+		}
+	}
+
+	/**
+	 * Make sure that a solution belongs to the problem instance of the snapshot
+	 * @param vrp VRP, the solution
+	 */
+	private void checkInstance(VRP vrp) {
+		if(vrp.getInstance() != instance) {
+			throw new IllegalArgumentException("The solution belongs to another problem instance");
+		}
+	}
+
+	/**
+	 * Accessor for the number of vehicles in the snapshot
+	 * @return int, the size of the fleet, including empty vehicles
+	 */
+	public int getNumVehicles() {
+		return numVehicles;
+	}
+
+	/**
+	 * Accessor for the tour of a vehicle
+	 * @param i int, the index of the vehicle in the fleet
+	 * @return int[], the indices of the customers in the order of the tour, without the depot
+	 */
+	public int[] getRoute(int i) {
+		return Arrays.copyOfRange(routes, routeStart[i], routeStart[i + 1]);
+	}
+
+	/**
+	 * Accessor for the total cost of the solution
+	 * @return double, the sum of the costs of all vehicles
+	 */
+	public double getTotalCost() {
+		double total = 0;
+		for(int i = 0; i < numVehicles; i++) {
+			total += costs[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Accessor for the problem instance of the snapshot
+	 * @return ProblemInstance, the instance
+	 */
+	public ProblemInstance getInstance() {
+		return instance;
+	}
+}
@@ -0,0 +1,173 @@
+package representation;
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the coordinates of the customers, used to answer proximity queries
+ * without looking at every customer. The customers of each cell are kept in a single primitive array.
+ * @author Tom Decke
+ *
+ */
+public class SpatialGrid {
+
+	private final int[] x, y;
+	private final int minX, minY;
+	private final int cols, rows;
+	private final double cellSize;
+	private final int[] cellStart; // the customers of cell c are items[cellStart[c]] ... items[cellStart[c+1]-1]
+	private final int[] items;
+
+	/**
+	 * Constructor to build the grid, such that each cell holds about two customers on average
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public SpatialGrid(int[] x, int[] y) {
+		this.x = x;
+		this.y = y;
+		int size = x.length;
+
+		//determine the extent of the coordinates
+		int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+		for(int i = 0; i < size; i++) {
+			loX = Math.min(loX, x[i]);
+			hiX = Math.max(hiX, x[i]);
+			loY = Math.min(loY, y[i]);
+			hiY = Math.max(hiY, y[i]);
+		}
+		minX = loX;
+		minY = loY;
+		double extent = Math.max(1, Math.max((double) hiX - loX, (double) hiY - loY));
+		int cellsPerSide = (int) Math.max(1, Math.ceil(Math.sqrt(size / 2.0)));
+		cellSize = extent / cellsPerSide;
+		cols = cellColumn(hiX) + 1;
+		rows = cellRow(hiY) + 1;
+
+		//count the customers per cell and sort them into the cells
+		cellStart = new int[cols * rows + 1];
+		int[] cell = new int[size];
+		for(int i = 0; i < size; i++) {
+			cell[i] = cellRow(y[i]) * cols + cellColumn(x[i]);
+			cellStart[cell[i] + 1]++;
+		}
+		for(int c = 0; c < cols * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		items = new int[size];
+		int[] fill = new int[cols * rows];
+		for(int i = 0; i < size; i++) {
+			items[cellStart[cell[i]] + fill[cell[i]]++] = i;
+		}
+	}
+
+	private int cellColumn(double px) {
+		return (int) Math.min(Integer.MAX_VALUE / 2, (px - minX) / cellSize);
+	}
+
+	private int cellRow(double py) {
+		return (int) Math.min(Integer.MAX_VALUE / 2, (py - minY) / cellSize);
+	}
+
+	/**
+	 * Find the customer closest to a customer
+	 * @param i int, index of the customer
+	 * @return int, index of the nearest other customer, or -1 if there is none
+	 */
+	public int nearest(int i) {
+		return nearest(x[i], y[i], i);
+	}
+
+	/**
+	 * Find the customer closest to a point, by searching rings of cells around the point
+	 * until no closer customer can be found further out
+	 * @param px double, x-coordinate of the point
+	 * @param py double, y-coordinate of the point
+	 * @param exclude int, index of a customer to ignore, or -1
+	 * @return int, index of the nearest customer, or -1 if there is none
+	 */
+	public int nearest(double px, double py, int exclude) {
+		int cx = clamp(cellColumn(px), cols);
+		int cy = clamp(cellRow(py), rows);
+		int best = -1;
+		double bestDist = Double.MAX_VALUE;
+		int maxRing = Math.max(Math.max(cx, cols - 1 - cx), Math.max(cy, rows - 1 - cy));
+		for(int ring = 0; ring <= maxRing; ring++) {
+			//customers outside this ring are at least (ring-1) cells away from the point
+			double bound = (ring - 1) * cellSize;
+			if(best >= 0 && bound > 0 && bound * bound > bestDist) {
+				break;
+			}
+			for(int gy = cy - ring; gy <= cy + ring; gy++) {
+				if(gy < 0 || gy >= rows) {
+					continue;
+				}
+				//only visit the border of the ring
+				int step = (gy == cy - ring || gy == cy + ring) ? 1 : Math.max(1, 2 * ring);
+				for(int gx = cx - ring; gx <= cx + ring; gx += step) {
+					if(gx < 0 || gx >= cols) {
+						continue;
+					}
+					int c = gy * cols + gx;
+					for(int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+						int j = items[p];
+						if(j == exclude) {
+							continue;
+						}
+						double dx = x[j] - px;
+						double dy = y[j] - py;
+						double d = dx * dx + dy * dy;
+						if(d < bestDist || (d == bestDist && j < best)) {
+							bestDist = d;
+							best = j;
+						}
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Find all customers within a given distance of a point
+	 * @param px double, x-coordinate of the point
+	 * @param py double, y-coordinate of the point
+	 * @param radius double, the maximal euclidean distance
+	 * @return int[], the indices of the customers in ascending order of their cells
+	 */
+	public int[] inRadius(double px, double py, double radius) {
+		int x0 = clamp(cellColumn(px - radius), cols), x1 = clamp(cellColumn(px + radius), cols);
+		int y0 = clamp(cellRow(py - radius), rows), y1 = clamp(cellRow(py + radius), rows);
+		double r2 = radius * radius;
+
+		int[] found = new int[16];
+		int count = 0;
+		for(int gy = y0; gy <= y1; gy++) {
+			for(int gx = x0; gx <= x1; gx++) {
+				int c = gy * cols + gx;
+				for(int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+					int j = items[p];
+					double dx = x[j] - px;
+					double dy = y[j] - py;
+					if(dx * dx + dy * dy <= r2) {
+						if(count == found.length) {
+							found = Arrays.copyOf(found, 2 * count);
+						}
+						found[count++] = j;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	private static int clamp(int cell, int limit) {
+		return Math.max(0, Math.min(cell, limit - 1));
+	}
+
+	/**
+	 * Accessor for the edge length of the cells
+	 * @return double, the cell size
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+}
@@ -0,0 +1,78 @@
+package representation;
+
+/**
+ * Bitset marking which customers can directly follow each other without violating their time windows,
+ * i.e. j can follow i if readyTime(i) + serviceTime(i) + dist(i,j) does not exceed dueDate(j).
+ * Each row is stored in consecutive longs of a single array.
+ * @author Tom Decke
+ *
+ */
+public class TimeWindowCompatibility {
+
+	/**the largest number of bits that is allocated (128 MB)*/
+	public static final long MAX_BITS = 1L << 30;
+
+	private final int size;
+	private final int words; // number of longs per row
+	private final long[] bits;
+
+	/**
+	 * Constructor to determine the compatibility of all pairs of customers.
+	 * The depot starts at time 0 when leaving it, as the first customer of each vehicle does.
+	 * @param instance ProblemInstance, the instance
+	 */
+	public TimeWindowCompatibility(ProblemInstance instance) {
+		size = instance.getN() + 1;
+		words = (size + 63) >>> 6;
+		checkSize(size);
+		bits = new long[size * words];
+
+		int[] ready = instance.getColumn(InstanceSource.READY_TIME);
+		int[] due = instance.getColumn(InstanceSource.DUE_DATE);
+		int[] service = instance.getColumn(InstanceSource.SERVICE_TIME);
+		ParallelRows.run(size, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				double leave = i == 0 ? 0 : ready[i] + service[i];
+				int row = i * words;
+				for(int j = 0; j < size; j++) {
+					if(leave + instance.distance(i, j) <= due[j]) {
+						bits[row + (j >>> 6)] |= 1L << j;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Check if the bitset for an instance would stay below the size limit
+	 * @param size int, the number of customers (including the depot)
+	 * @return boolean, true if the bitset can be built
+	 */
+	public static boolean fits(int size) {
+		return (long) size * (((long) size + 63) >>> 6) * 64 <= MAX_BITS;
+	}
+
+	private static void checkSize(int size) {
+		if(!fits(size)) {
+			throw new IllegalArgumentException("Compatibility bitset for " + size + " customers exceeds " + MAX_BITS + " bits");
+		}
+	}
+
+	/**
+	 * Check if a customer can directly follow another one
+	 * @param i int, index of the predecessor
+	 * @param j int, index of the successor
+	 * @return boolean, false if j can never be visited directly after i
+	 */
+	public boolean canFollow(int i, int j) {
+		return (bits[i * words + (j >>> 6)] & (1L << j)) != 0;
+	}
+
+	/**
+	 * Accessor for the number of customers (including the depot)
+	 * @return int, the size
+	 */
+	public int size() {
+		return size;
+	}
+}
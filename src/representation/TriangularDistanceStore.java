@@ -0,0 +1,51 @@
+package representation;
+
+/**
+ * Distance store for symmetric instances, keeping only the upper triangle (without the diagonal) of the matrix
+ * @author Tom Decke
+ *
+ */
+public class TriangularDistanceStore extends DistanceStore {
+
+	private final double[] distance;
+
+	/**
+	 * Constructor to calculate the euclidean distances of the given coordinates
+	 * @param x int[], the x-coordinates, where index 0 is the depot
+	 * @param y int[], the y-coordinates, where index 0 is the depot
+	 */
+	public TriangularDistanceStore(int[] x, int[] y) {
+		super(x.length);
+		distance = new double[checkArraySize((long) size * (size-1) / 2)];
+		ParallelRows.run(size, (from, to) -> {
+			for(int i = from; i < to; i++) {
+				int index = rowStart(i);
+				for(int j = i+1; j < size; j++) {
+					distance[index++] = euclidean(x, y, i, j);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Determine the position of the first stored distance of a row,
+	 * row i starts after the i previous rows of length size-1, size-2, ..., size-i
+	 */
+	private int rowStart(int i) {
+		return (int) ((long) i * (2 * size - i - 1) / 2);
+	}
+
+	@Override
+	public double get(int i, int j) {
+		if(i == j) {
+			return 0;
+		}
+		//the matrix is symmetric, so only the upper triangle is stored
+		if(i > j) {
+			int tmp = i;
+			i = j;
+			j = tmp;
+		}
+		return distance[rowStart(i) + j - i - 1];
+	}
+}
@@ -1,96 +1,322 @@
 package representation;
-import java.util.*;
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * Class to model a VRP-instance
+ * Class to model a VRP-instance together with a solution (customers and vehicle routes) for it.
+ * The immutable problem data is held by a ProblemInstance, which can be shared among solutions.
  * @author Patrick Prosser
  *
  */
 public class VRP {
 
+	/**cost of use for virtual vehicles, which exceed the number of vehicles given by the benchmark*/
+	public static final int VIRTUAL_COST = 100;
+
 	private String name;
 	private Customer[] customer;
-	private Vehicle[] vehicle;
-	private double[][] distance;   
+	private int[] position; // position of each customer on the route of its vehicle
+	private Vehicle[] vehicle; // the fleet, vehicle[i] has index i
+	private Vehicle spare; // the single empty virtual vehicle that is kept in the fleet
+	private ArrayDeque<Vehicle> pool = new ArrayDeque<Vehicle>(); // empty virtual vehicles for reuse
+	private int nextId; // id of the next virtual vehicle that has to be created
+	private DistanceStore distance;
 	private int n, m; // number of customers and number of vehicles
 	private int capacity;
 	private Customer depot;
+	private ProblemInstance instance;
+	private TimeWindowCompatibility compatibility; // null if the instance is too large for the bitset
+	private long propagationSteps; // number of customers visited by the propagation of earliest and latest start
+	private long lastVersion; // the last version that was given to a vehicle
+
+	/**
+	 * Constructor to create a VRP-instance, the number of customers is taken from the file
+	 * @param fname String, name of the file containing the VRP-instance
+	 * @throws IOException
+	 */
+	public VRP(String fname) throws IOException {
+		this(ProblemInstance.load(fname));
+	}
 
 	/**
-	 * Constructor to create a VRP-instance
+	 * Constructor to create a VRP-instance from the first customers of a file
 	 * @param fname String, name of the file containing the VRP-instance
 	 * @param numberOfCustomers int, the number of customers for the problem
 	 * @throws IOException
 	 */
 	public VRP(String fname,int numberOfCustomers) throws IOException {
-		n = numberOfCustomers;
-		//create arrays/matrix of necessary size
+		this(ProblemInstance.load(fname, numberOfCustomers));
+	}
+
+	/**
+	 * Constructor to create a VRP-instance from a parsed instance
+	 * @param reader InstanceSource, the parsed instance
+	 */
+	public VRP(InstanceSource reader) {
+		this(new ProblemInstance(reader));
+	}
+
+	/**
+	 * Constructor to create a new solution for a loaded problem instance.
+	 * Only the customers and vehicles of the solution are allocated, the distances are shared.
+	 * @param instance ProblemInstance, the problem instance
+	 */
+	public VRP(ProblemInstance instance) {
+		this.instance = instance;
+		n = instance.getN();
+		//create arrays of necessary size
 		customer = new Customer[n+1]; // customer[0] is depot
-		vehicle = new Vehicle[n]; // no comment
-		distance = new double[n+1][n+1];
-
-		//read information from solomon-benchmark example
-		String s = "";
-		Scanner sc = new Scanner(new File(fname));
-		name = sc.next();
-		sc.next(); sc.next(); sc.next();
-		m = sc.nextInt();
-		capacity = sc.nextInt();
-		while (sc.hasNext() && !s.equals("TIME")) s = sc.next();
-		s = "continue";
-		while (sc.hasNext() && !s.equals("TIME"))s = sc.next(); 
+		position = new int[n+1];
+		distance = instance.getDistance();
+		compatibility = instance.getCompatibility();
+
+		//take over the information from the problem instance
+		name = instance.getName();
+		m = instance.getM();
+		capacity = instance.getCapacity();
 		for (int i=0;i<=n;i++){
-			int custNo = sc.nextInt();
-			int x = sc.nextInt();
-			int y = sc.nextInt();
-			int d = sc.nextInt();
-			int rt = sc.nextInt();
-			int dd = sc.nextInt();
-			int st = sc.nextInt();
-			//create customer for read data and add it to the array
-			customer[i] = new Customer(custNo,x,y,d,rt,dd,st);
+			customer[i] = instance.createCustomer(i);
+			customer[i].setIndex(i);
 			customer[i].setVrp(this);
-			//System.out.println("cust: "+ customer[i]);
-
 		}
-		sc.close();
-
-		//calculate the distances between all customers based on the euclidean distance
-		for (int i=0;i<n;i++)
-			for (int j=i+1;j<=n;j++){
-				double deltaX = (double)(customer[i].getxCoord() - customer[j].getxCoord());
-				double deltaY = (double)(customer[i].getyCoord() - customer[j].getyCoord());
-				distance[i][j] = distance[j][i] = Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
-			}
 
 		depot = customer[0];
 
-		//Create one vehicle for each customer and add a customer
-		for (int i=0;i<n;i++){
+		//the fleet consists of the m real vehicles, virtual vehicles for the customers exceeding them and one spare
+		int routes = Math.max(n, m);
+		vehicle = new Vehicle[routes];
+		for (int i=0;i<routes;i++){
 			//vehicle at array-position 0 gets the id 1
-			vehicle[i] = new Vehicle(this,i+1,capacity,1,depot);
-			//Every new vehicle that is created after the number of vehicles given by the benchmark is reached
+			//Every vehicle that is created after the number of vehicles given by the benchmark is reached
 			//becomes virtual by the assignment of a high cost of use
-			if(i>m-1) {
-				vehicle[i].setCostOfUse(100);
+			vehicle[i] = new Vehicle(this,i+1,capacity,i<m ? 1 : VIRTUAL_COST,depot);
+			//start with one customer per vehicle and omit the depot
+			if(i<n) {
+				vehicle[i].insertBetween(customer[i+1], vehicle[i].getFirstCustomer(), vehicle[i].getLastCustomer());
+			}
+		}
+		nextId = routes+1;
+		spare = addVirtualVehicle();
+	}
+
+	/**
+	 * Append an empty virtual vehicle to the fleet, which is taken from the pool if possible
+	 * @return Vehicle, the new vehicle
+	 */
+	private Vehicle addVirtualVehicle() {
+		Vehicle v = pool.poll();
+		if(v == null) {
+			v = new Vehicle(this,nextId++,capacity,VIRTUAL_COST,depot);
+		}
+		v.setIndex(vehicle.length);
+		vehicle = Arrays.copyOf(vehicle, vehicle.length+1);
+		vehicle[v.getIndex()] = v;
+		return v;
+	}
+
+	/**
+	 * Return a vehicle to the pool if it is an empty virtual vehicle and there already is an empty spare.
+	 * The last vehicle of the fleet takes over the index of the removed one.
+	 * @param v Vehicle, a vehicle whose tour has changed
+	 * @return int, the index of the removed vehicle, or -1 if the vehicle stays in the fleet
+	 */
+	public int releaseVehicle(Vehicle v) {
+		if(!v.isVirtual() || !v.isEmpty() || v == spare || v.getIndex() < 0) {
+			return -1;
+		}
+		//the empty vehicle becomes the spare if the old spare is in use
+		if(!spare.isEmpty()) {
+			spare = v;
+			return -1;
+		}
+		int index = v.getIndex();
+		Vehicle last = vehicle[vehicle.length-1];
+		vehicle[index] = last;
+		last.setIndex(index);
+		vehicle = Arrays.copyOf(vehicle, vehicle.length-1);
+		v.recycle();
+		pool.push(v);
+		return index;
+	}
+
+	/**
+	 * Make sure that the fleet contains an empty virtual vehicle, to which customers can be moved
+	 * @return Vehicle, the new spare vehicle at the end of the fleet, or null if the spare is still empty
+	 */
+	public Vehicle ensureSpare() {
+		if(spare.isEmpty()) {
+			return null;
+		}
+		spare = addVirtualVehicle();
+		return spare;
+	}
+
+	/**
+	 * Remove all empty virtual vehicles from the fleet except for the spare.
+	 * Option matrices that were created before are not adapted.
+	 */
+	public void compactFleet() {
+		//go backwards, so that every vehicle moved by the removal has been checked already
+		for(int i = vehicle.length-1; i >= 0; i--) {
+			releaseVehicle(vehicle[i]);
+		}
+		ensureSpare();
+	}
+
+	/**
+	 * Bring the fleet to a given size and spare vehicle, as needed to restore a snapshot.
+	 * Surplus vehicles are returned to the pool and missing ones are added, the tours are set afterwards.
+	 * @param size int, the size of the fleet
+	 * @param spareIndex int, the index of the spare vehicle
+	 * @param minNextId int, the id that the next new virtual vehicle has at least
+	 */
+	void restoreFleet(int size, int spareIndex, int minNextId) {
+		while(vehicle.length > size) {
+			Vehicle v = vehicle[vehicle.length-1];
+			vehicle = Arrays.copyOf(vehicle, vehicle.length-1);
+			v.recycle();
+			v.setCostOfUse(VIRTUAL_COST);
+			pool.push(v);
+		}
+		while(vehicle.length < size) {
+			addVirtualVehicle();
+		}
+		nextId = Math.max(nextId, minNextId);
+		//the ids of the fleet are restored, so the pooled vehicles get new ones that can not collide
+		for(Vehicle v : pool) {
+			v.setId(nextId++);
+		}
+		spare = vehicle[spareIndex];
+	}
+
+	/**
+	 * Accessor for the empty virtual vehicle that is kept in the fleet
+	 * @return Vehicle, the spare vehicle
+	 */
+	Vehicle getSpare() {
+		return spare;
+	}
+
+	/**
+	 * Create a new version for a vehicle that changed
+	 * @return long, a version that was not given to any vehicle before
+	 */
+	long nextVersion() {
+		return ++lastVersion;
+	}
+
+	/**
+	 * Determine the fingerprint of the solution from the hashes of the tours, which does not depend on the order of the vehicles.
+	 * Empty vehicles are left out, so solutions with the same tours have the same fingerprint.
+	 * @return long, the fingerprint
+	 */
+	public long getFingerprint() {
+		long fingerprint = 0;
+		for(Vehicle v : vehicle) {
+			if(!v.isEmpty()) {
+				fingerprint += v.getHash();
 			}
-			//add customer to vehicle and omit the depot
-			vehicle[i].insertBetween(customer[i+1], vehicle[i].getFirstCustomer(), vehicle[i].getLastCustomer());
 		}
+		return fingerprint;
 	}
 
 	/**
-	 * Determine the distance between two customers, by accessing the distance matrix
+	 * Accessor for the id of the next virtual vehicle that has to be created
+	 * @return int, the next id
+	 */
+	int getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * Determine the distance between two customers, by accessing the distance store
 	 * @param x Customer, customer no. 1
 	 * @param y Customer, customer no. 2
 	 * @return double, the euclidean distance
 	 */
 	public double distance(Customer x,Customer y){
-		if (x == null && y == null) return Double.MAX_VALUE;
-		if (x == null) return distance[0][y.getCustNo()];
-		if (y == null) return distance[0][x.getCustNo()];
-		return distance[x.getCustNo()][y.getCustNo()];
+		return distance.get(x.getIndex(), y.getIndex());
+	}
+
+	/**
+	 * Determine the distance between two customers by their dense index, by accessing the distance store
+	 * @param i int, index of customer no. 1 (0 for the depot)
+	 * @param j int, index of customer no. 2 (0 for the depot)
+	 * @return double, the euclidean distance
+	 */
+	public double distance(int i, int j){
+		return distance.get(i, j);
+	}
+
+	/**
+	 * Check if a customer can directly follow another one with respect to their time windows
+	 * @param i int, index of the predecessor (0 for the depot)
+	 * @param j int, index of the successor (0 for the depot)
+	 * @return boolean, false if j can never be visited directly after i
+	 */
+	public boolean canFollow(int i, int j) {
+		return compatibility == null || compatibility.canFollow(i, j);
+	}
+
+	/**
+	 * Get the k nearest customers of each customer as candidates for granular neighbourhoods
+	 * @param k int, the number of candidates per customer
+	 * @param timeWindows boolean, whether or not customers with incompatible time windows are to be excluded
+	 * @return CandidateList, the candidate lists of the problem instance
+	 */
+	public CandidateList getCandidates(int k, boolean timeWindows) {
+		return instance.getCandidates(k, timeWindows);
+	}
+
+	/**
+	 * Find the customer that is geographically closest to a customer
+	 * @param c Customer, the customer
+	 * @return Customer, the nearest other customer or the depot, or null if there is none
+	 */
+	public Customer getNearestCustomer(Customer c) {
+		int j = instance.getGrid().nearest(c.getIndex());
+		return j < 0 ? null : customer[j];
+	}
+
+	/**
+	 * Find all customers within a given distance of a customer
+	 * @param c Customer, the customer at the centre
+	 * @param radius double, the maximal distance
+	 * @return ArrayList<Customer>, the customers within the radius (including c and possibly the depot)
+	 */
+	public ArrayList<Customer> getCustomersInRadius(Customer c, double radius) {
+		ArrayList<Customer> near = new ArrayList<Customer>();
+		for(int j : instance.getGrid().inRadius(c.getxCoord(), c.getyCoord(), radius)) {
+			near.add(customer[j]);
+		}
+		return near;
+	}
+
+	/**
+	 * Find all vehicles whose tours are close to the tour of a vehicle
+	 * @param v Vehicle, the vehicle
+	 * @param margin double, the distance by which the bounding boxes of the tours are enlarged
+	 * @return ArrayList<Vehicle>, the vehicles with overlapping bounding boxes (including v)
+	 */
+	public ArrayList<Vehicle> getVehiclesNear(Vehicle v, double margin) {
+		ArrayList<Vehicle> near = new ArrayList<Vehicle>();
+		for(Vehicle other : vehicle) {
+			if(v.isNear(other, margin)) {
+				near.add(other);
+			}
+		}
+		return near;
+	}
+
+	/**
+	 * Build the cached summaries of all tours, so that moves can be evaluated by several threads at once
+	 */
+	public void prepareEvaluation() {
+		for(Vehicle v : vehicle) {
+			v.prepareEvaluation();
+		}
 	}
 
 	/**
@@ -106,6 +332,37 @@ public class VRP {
 		return totalCost;
 	}
 
+	/**
+	 * Count the customers whose earliest or latest start was visited by a propagation
+	 * @param steps int, the number of visited customers
+	 */
+	public void addPropagationSteps(int steps) {
+		propagationSteps += steps;
+	}
+
+	/**
+	 * Accessor for the number of customers visited by propagations, which shows how far the changes of the tours spread
+	 * @return long, the number of visited customers since the last reset
+	 */
+	public long getPropagationSteps() {
+		return propagationSteps;
+	}
+
+	/**
+	 * Reset the number of customers visited by propagations
+	 */
+	public void resetPropagationSteps() {
+		propagationSteps = 0;
+	}
+
+	/**
+	 * Accessor for the problem instance this solution belongs to
+	 * @return ProblemInstance, the problem instance
+	 */
+	public ProblemInstance getInstance() {
+		return instance;
+	}
+
 	/**
 	 * Accessor for the name of the VRP
 	 * @return String, the name
@@ -146,6 +403,14 @@ public class VRP {
 		return vehicle;
 	}
 
+	/**
+	 * Accessor for the positions of the customers on the routes of their vehicles, which are maintained by the vehicles
+	 * @return int[], the position of each customer by its index
+	 */
+	public int[] getPositions() {
+		return position;
+	}
+
 	/**
 	 * Mutator for the vehicles
 	 * @param vehicle Vehicle[], the new vehicles
@@ -155,21 +420,29 @@ public class VRP {
 	}
 
 	/**
-	 * Accessor for the distance-matrix
-	 * @return double[][], the distance-matrix
+	 * Accessor for the distances
+	 * @return DistanceStore, the distances
 	 */
-	public double[][] getDistance() {
+	public DistanceStore getDistance() {
 		return distance;
 	}
 
 	/**
-	 * Mutator for the distance-matrix
-	 * @param distance double[][], the new distance-matrix
+	 * Mutator for the distances
+	 * @param distance DistanceStore, the new distances
 	 */
-	public void setDistance(double[][] distance) {
+	public void setDistance(DistanceStore distance) {
 		this.distance = distance;
 	}
 
+	/**
+	 * Accessor for the number of vehicles in the fleet, including virtual ones
+	 * @return int, the size of the fleet
+	 */
+	public int getNumVehicles() {
+		return vehicle.length;
+	}
+
 	/**
 	 * Accessor for the number of customers
 	 * @return n, the number of customers
@@ -1,5 +1,5 @@
 package representation;
-import addOns.TimeConstraintViolationException;
+import java.util.Arrays;
 
 /**
  * Class modeling a vehicle for a VRP-instance
@@ -13,7 +13,23 @@ public class Vehicle {
 	private double distance; //distance travelled by the vehicle
 	//customers for beginning and end of a tour
 	private Customer firstCustomer, lastCustomer;
+	//indices of the customers in the order of the tour, route[0] and route[length+1] are the depot
+	private int[] route;
+	private int length; // number of customers on the tour
+	//loadUpTo[p] and distanceUpTo[p] are the demand served and the distance travelled from the depot up to position p
+	private int[] loadUpTo;
+	private double[] distanceUpTo;
+	//prefix[p] summarises the positions 0 to p and suffix[p] the positions p to length+1, built on demand
+	private Segment[] prefix, suffix;
+	private boolean segmentsValid;
 	private VRP vrp;
+	//bounding box of the customers on the tour (without the depot)
+	private int minX, minY, maxX, maxY;
+	private boolean boundsValid;
+	private int violation = Violation.NONE; // violation caused by the last insertion or removal
+	//Zobrist-style hash of the tour, the xor of the keys of its directed edges, kept up to date by every change
+	private long hash;
+	private long version; // stamp of the current state, which is unique within the VRP and renewed by every change
 
 	/**
 	 * Constructor to create a vehicle for the VRP
@@ -33,11 +49,23 @@ public class Vehicle {
 
 		//set up dummy customers who come at the beginning and at the end of a tour 
 		firstCustomer = new Customer(depot.getCustNo(),depot.getxCoord(),depot.getyCoord(),0,0,0,0);
+		firstCustomer.setIndex(depot.getIndex());
+		firstCustomer.setSlot(vrp.getInstance().getStartSlot());
 		firstCustomer.setVehicle(this);
+		firstCustomer.setVrp(vrp);
 		lastCustomer = new Customer(depot.getCustNo(),depot.getxCoord(),depot.getyCoord(),0,0,depot.getDueDate(),0);
+		lastCustomer.setIndex(depot.getIndex());
+		lastCustomer.setSlot(vrp.getInstance().getEndSlot());
 		lastCustomer.setVehicle(this);
+		lastCustomer.setVrp(vrp);
 		firstCustomer.setSucc(lastCustomer);
 		lastCustomer.setPred(firstCustomer);
+		route = new int[8];
+		route[0] = route[1] = depot.getIndex();
+		loadUpTo = new int[route.length];
+		distanceUpTo = new double[route.length];
+		hash = edgeKey(route[0], route[1]);
+		version = vrp.nextVersion();
 	}
 
 
@@ -45,7 +73,8 @@ public class Vehicle {
 	 * Insert customer c into vehicle's tour
 	 * in least cost position. Deliver true
 	 * if the insertion was possible, i.e.
-	 * capacity & time windows respected
+	 * capacity & time windows respected.
+	 * The customer is inserted in any case, a violation can be read with getViolation
 	 * @param cInsert Customer, the customer which is to be inserted 
 	 * @return boolean, whether or not the insertion was successful
 	 */
@@ -54,6 +83,7 @@ public class Vehicle {
 
 		//tell the customer he now belongs to this vehicle
 		cInsert.setVehicle(this);
+		insertAt(getPosition(cPred) + 1, cInsert.getIndex());
 
 		//insert the customer into the vehicle
 		cInsert.setPred(cPred);
@@ -62,14 +92,13 @@ public class Vehicle {
 		cPred.setSucc(cInsert);
 
 		//propagate the earliest and latest start
-		try {
-			cInsert.insertBetween(cPred, cSucc);
-		} catch (TimeConstraintViolationException e) {
-			System.out.println(e.getMessage());
-		}
+		int code = cInsert.insertBetween(cPred, cSucc);
 
 		//increase the load of the vehicle by the customers demand
 		this.load += cInsert.getDemand();
+		if(code == Violation.NONE && load > capacity) {
+			code = Violation.of(Violation.CAPACITY, cInsert.getIndex());
+		}
 
 		//update the distance by removing the prior edge and adding the new ones
 		distance += (vrp.distance(cPred,cInsert) + vrp.distance(cInsert, cSucc) - vrp.distance(cPred,cSucc));
@@ -77,7 +106,16 @@ public class Vehicle {
 		//update the cost of this vehicle
 		this.cost = this.distance * this.costOfUse;
 
-		return true;
+		//enlarge the bounding box
+		if(boundsValid) {
+			minX = Math.min(minX, cInsert.getxCoord());
+			maxX = Math.max(maxX, cInsert.getxCoord());
+			minY = Math.min(minY, cInsert.getyCoord());
+			maxY = Math.max(maxY, cInsert.getyCoord());
+		}
+
+		violation = Violation.report(code);
+		return code == Violation.NONE;
 	}
 
 	/**
@@ -96,55 +134,484 @@ public class Vehicle {
 
 
 	/**
-	 * Remove a customer from the vehicle's tour
+	 * Remove a customer from the vehicle's tour.
+	 * The customer is found by its position, so no search along the tour is needed.
 	 * @param c Customer, the customer which should be removed
-	 * @return boolean, true if successful, false otherwise
+	 * @return boolean, true if successful, false if the customer is not on the tour of this vehicle
 	 */
 	public boolean remove(Customer c){
-		Customer currentCustomer = firstCustomer;
+		//check that the customer belongs to this vehicle and is not one of its depot customers
+		if(!contains(c)) {
+			return false;
+		}
+		Customer cPred = c.getPred();
+		Customer cSucc = c.getSucc();
+
+		//change the successor of the predecessor and the predecessor of the successor
+		cPred.setSucc(cSucc);
+		cSucc.setPred(cPred);
+		removeAt(getPosition(c));
+
+		//re-propagate earliest and latest start, starting with the new neighbours themselves
+		int code = cPred.propagateEarliestStart();
+		if(code == Violation.NONE) {
+			code = cSucc.propagateLatestStart();
+		}
 
-		//search for customer c
-		while(currentCustomer.getSucc() != null) {
-			if(c.equals(currentCustomer)) {
-				Customer cPred =  currentCustomer.getPred();
-				Customer cSucc = currentCustomer.getSucc();
+		//remove the load
+		this.load -= c.getDemand();
 
-				//if found change the successor of the predecessor and the predecessor of the successor
-				cPred.setSucc(cSucc);
-				cSucc.setPred(cPred);
+		//remove pointers of the customer
+		c.setVehicle(null);
+		c.setPred(null);
+		c.setSucc(null);
 
-				//re-propagate earliest and latest start
-				try {
-					//propagate earliest start 
-					cSucc.propagateEarliestStart();
+		//update distance, by removing edges to former customer and adding new edge between now-neighbours
+		distance += vrp.distance(cPred, cSucc) - vrp.distance(cPred, c) - vrp.distance(c, cSucc);
 
-					//propagate latest start 
-					cPred.propagateLatestStart();
+		//recalculate the cost
+		this.cost = this.distance * this.costOfUse;
 
-				} catch (TimeConstraintViolationException e) {
-					System.out.println(e.getMessage());
-				}
+		//the bounding box might shrink
+		boundsValid = false;
 
+		violation = Violation.report(code);
+		return true;
+	}
 
-				//remove the load
-				this.load -= c.getDemand();
+	/**
+	 * Check in O(1) if a customer is on the tour of this vehicle
+	 * @param c Customer, the customer to check
+	 * @return boolean, true if the customer is served by this vehicle, false for other customers and the depot
+	 */
+	public boolean contains(Customer c) {
+		if(c == null || c.getVehicle() != this || c == firstCustomer || c == lastCustomer) {
+			return false;
+		}
+		int pos = vrp.getPositions()[c.getIndex()];
+		return pos >= 1 && pos <= length && route[pos] == c.getIndex();
+	}
 
-				//remove pointers of the customer
-				c.setVehicle(null);
-				c.setPred(null);
-				c.setSucc(null);
+	/**
+	 * Insert a customer into the route array and update the positions of the following customers
+	 * @param pos int, the position of the new customer
+	 * @param c int, index of the customer
+	 */
+	private void insertAt(int pos, int c) {
+		if(length + 2 == route.length) {
+			growRoute();
+		}
+		//replace the edge between the neighbours by the two edges to the new customer
+		hash ^= edgeKey(route[pos - 1], route[pos]) ^ edgeKey(route[pos - 1], c) ^ edgeKey(c, route[pos]);
+		//shift the customers from pos up to the closing depot by one
+		System.arraycopy(route, pos, route, pos + 1, length + 2 - pos);
+		route[pos] = c;
+		length++;
+		segmentsValid = false;
+		version = vrp.nextVersion();
+		int[] position = vrp.getPositions();
+		for(int p = pos; p <= length; p++) {
+			position[route[p]] = p;
+		}
+		updatePrefixSums(pos);
+	}
 
-				//update distance, by removing edges to former customer and adding new edge between now-neighbours
-				distance += vrp.distance(cPred, cSucc) - vrp.distance(cPred, currentCustomer) - vrp.distance(currentCustomer, cSucc);
+	/**
+	 * Remove a customer from the route array and update the positions of the following customers
+	 * @param pos int, the position of the customer
+	 */
+	private void removeAt(int pos) {
+		hash ^= edgeKey(route[pos - 1], route[pos]) ^ edgeKey(route[pos], route[pos + 1]) ^ edgeKey(route[pos - 1], route[pos + 1]);
+		System.arraycopy(route, pos + 1, route, pos, length + 1 - pos);
+		length--;
+		segmentsValid = false;
+		version = vrp.nextVersion();
+		int[] position = vrp.getPositions();
+		for(int p = pos; p <= length; p++) {
+			position[route[p]] = p;
+		}
+		updatePrefixSums(pos);
+	}
+
+	/**
+	 * Double the size of the route array and of the cumulative load and distance
+	 */
+	private void growRoute() {
+		route = Arrays.copyOf(route, 2 * route.length);
+		loadUpTo = Arrays.copyOf(loadUpTo, route.length);
+		distanceUpTo = Arrays.copyOf(distanceUpTo, route.length);
+	}
 
-				//recalculate the cost
-				this.cost = this.distance * this.costOfUse;
+	/**
+	 * Recalculate the cumulative load and distance from a position up to the closing depot,
+	 * the values before the position are not affected by a change at the position
+	 * @param pos int, the first position that changed, at least 1
+	 */
+	private void updatePrefixSums(int pos) {
+		int[] demand = vrp.getInstance().getDemands();
+		for(int p = pos; p <= length + 1; p++) {
+			loadUpTo[p] = loadUpTo[p - 1] + demand[route[p]];
+			distanceUpTo[p] = distanceUpTo[p - 1] + vrp.distance(route[p - 1], route[p]);
+		}
+	}
 
-				return true;
+	/**
+	 * Rebuild the route array and the cumulative load and distance from the linked customers,
+	 * which is needed if the tour was changed without insertBetween or remove.
+	 * The bounding box is marked as outdated as well.
+	 */
+	public void rebuildRoute() {
+		int[] position = vrp.getPositions();
+		length = 0;
+		Customer c = firstCustomer.getSucc();
+		while(c != lastCustomer) {
+			if(length + 2 == route.length) {
+				growRoute();
 			}
-			currentCustomer = currentCustomer.getSucc();
+			route[++length] = c.getIndex();
+			position[c.getIndex()] = length;
+			c = c.getSucc();
+		}
+		route[length + 1] = route[0];
+		updatePrefixSums(1);
+		updateHash();
+		boundsValid = false;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Recalculate the hash of the tour from the route array and renew the version
+	 */
+	private void updateHash() {
+		hash = 0;
+		for(int p = 0; p <= length; p++) {
+			hash ^= edgeKey(route[p], route[p + 1]);
+		}
+		version = vrp.nextVersion();
+	}
+
+	/**
+	 * Determine the key of a directed edge for the hash of a tour. The keys are pseudo-random numbers
+	 * derived from the customers by the finaliser of SplitMix64, which takes the place of a table of random keys.
+	 * @param from int, index of the customer at the start of the edge
+	 * @param to int, index of the customer at the end of the edge
+	 * @return long, the key
+	 */
+	private static long edgeKey(int from, int to) {
+		long z = ((long) from << 32 | to) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Accessor for the hash of the tour, which only depends on the sequence of customers.
+	 * Vehicles with the same tour have the same hash, different tours collide with a probability of about 2^-64.
+	 * @return long, the hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Accessor for the version of the vehicle. It is renewed by every change of the tour, the cost or the capacity,
+	 * and no two states of vehicles of the same VRP share a version, so it identifies the state of the vehicle.
+	 * @return long, the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Replace the tour by a sequence of customers, as needed to restore a snapshot.
+	 * Load, distance and cost are not changed.
+	 * @param customers int[], the indices of the customers
+	 * @param from int, the position of the first customer of the tour in customers (inclusive)
+	 * @param to int, the position after the last customer of the tour in customers (exclusive)
+	 */
+	void setTour(int[] customers, int from, int to) {
+		Customer[] all = vrp.getCustomer();
+		Customer cPred = firstCustomer;
+		for(int k = from; k < to; k++) {
+			Customer c = all[customers[k]];
+			c.setVehicle(this);
+			c.setPred(cPred);
+			cPred.setSucc(c);
+			cPred = c;
+		}
+		cPred.setSucc(lastCustomer);
+		lastCustomer.setPred(cPred);
+		lastCustomer.setVehicle(this);
+		rebuildRoute();
+	}
+
+	/**
+	 * Build the cached summaries of the tour (segments and bounding box) that are otherwise built on demand.
+	 * Afterwards the evaluation of moves only reads the vehicle, so several threads can evaluate it at once.
+	 */
+	public void prepareEvaluation() {
+		updateSegments();
+		updateBounds();
+	}
+
+	/**
+	 * Recalculate the prefix and suffix segments, if the tour was changed since they were built
+	 */
+	private void updateSegments() {
+		if(segmentsValid) {
+			return;
+		}
+		if(prefix == null || prefix.length < length + 2) {
+			int size = Math.max(route.length, length + 2);
+			prefix = new Segment[size];
+			suffix = new Segment[size];
+			for(int p = 0; p < size; p++) {
+				prefix[p] = new Segment();
+				suffix[p] = new Segment();
+			}
+		}
+		Segment single = new Segment();
+		ProblemInstance instance = vrp.getInstance();
+		int end = length + 1;
+		//the depot customers have their own time windows, the customers are read from the arrays of the instance
+		prefix[0].set(firstCustomer);
+		for(int p = 1; p < end; p++) {
+			prefix[p].concat(prefix[p - 1], vrp.distance(route[p - 1], route[p]), single.set(instance, route[p]));
+		}
+		prefix[end].concat(prefix[end - 1], vrp.distance(route[end - 1], route[end]), single.set(lastCustomer));
+		suffix[end].set(lastCustomer);
+		for(int p = end - 1; p > 0; p--) {
+			suffix[p].concat(single.set(instance, route[p]), vrp.distance(route[p], route[p + 1]), suffix[p + 1]);
+		}
+		suffix[0].concat(single.set(firstCustomer), vrp.distance(route[0], route[1]), suffix[1]);
+		segmentsValid = true;
+	}
+
+	/**
+	 * Check in O(1) if the time windows of the tour can be met, when the customers between two positions are replaced by a customer
+	 * @param from int, position of the customer that is visited before c
+	 * @param to int, position of the customer that is visited after c, at least from+1
+	 * @param c Customer, the customer to insert, which is not on the tour between from and to
+	 * @param result Segment, receives the summary of the new tour
+	 * @return boolean, true if the new tour is feasible with respect to the time windows
+	 */
+	public boolean canReplace(int from, int to, Customer c, Segment result) {
+		result.set(vrp.getInstance(), c.getIndex());
+		result.concat(getPrefix(from), vrp.distance(route[from], c.getIndex()), result);
+		result.concat(result, vrp.distance(c.getIndex(), route[to]), getSuffix(to));
+		return result.isFeasible();
+	}
+
+	/**
+	 * Get the summary of the tour from the depot up to a position, which must not be changed
+	 * @param pos int, the last position of the segment
+	 * @return Segment, the segment of the positions 0 to pos
+	 */
+	public Segment getPrefix(int pos) {
+		updateSegments();
+		return prefix[pos];
+	}
+
+	/**
+	 * Get the summary of the tour from a position back to the depot, which must not be changed
+	 * @param pos int, the first position of the segment
+	 * @return Segment, the segment of the positions pos to getRouteLength()+1
+	 */
+	public Segment getSuffix(int pos) {
+		updateSegments();
+		return suffix[pos];
+	}
+
+	/**
+	 * Determine the position of a customer on the tour in O(1)
+	 * @param c Customer, a customer of this vehicle or one of its depot customers
+	 * @return int, the position, where 0 is the first and getRouteLength()+1 the last depot customer
+	 */
+	public int getPosition(Customer c) {
+		if(c == firstCustomer) {
+			return 0;
+		}
+		if(c == lastCustomer) {
+			return length + 1;
 		}
-		return false;
+		return vrp.getPositions()[c.getIndex()];
+	}
+
+	/**
+	 * Get the customer at a position of the tour in O(1)
+	 * @param pos int, the position, where 0 is the first and getRouteLength()+1 the last depot customer
+	 * @return Customer, the customer at the position
+	 */
+	public Customer getCustomerAt(int pos) {
+		if(pos == 0) {
+			return firstCustomer;
+		}
+		if(pos > length) {
+			return lastCustomer;
+		}
+		return vrp.getCustomer()[route[pos]];
+	}
+
+	/**
+	 * Get the customer that is visited before a customer of the tour
+	 * @param c Customer, a customer of this vehicle or the last depot customer
+	 * @return Customer, the predecessor
+	 */
+	public Customer getPredecessor(Customer c) {
+		return getCustomerAt(getPosition(c) - 1);
+	}
+
+	/**
+	 * Get the customer that is visited after a customer of the tour
+	 * @param c Customer, a customer of this vehicle or the first depot customer
+	 * @return Customer, the successor
+	 */
+	public Customer getSuccessor(Customer c) {
+		return getCustomerAt(getPosition(c) + 1);
+	}
+
+	/**
+	 * Get the demand served from the depot up to a position in O(1)
+	 * @param pos int, the last position, where getRouteLength()+1 gives the load of the vehicle
+	 * @return int, the demand of the customers at the positions 1 to pos
+	 */
+	public int getLoadUpTo(int pos) {
+		return loadUpTo[pos];
+	}
+
+	/**
+	 * Get the demand of the customers between two positions in O(1)
+	 * @param from int, the first position of the segment, at least 1
+	 * @param to int, the last position of the segment
+	 * @return int, the demand of the customers at the positions from to to
+	 */
+	public int getLoadBetween(int from, int to) {
+		return loadUpTo[to] - loadUpTo[from - 1];
+	}
+
+	/**
+	 * Get the distance travelled from the depot up to a position in O(1)
+	 * @param pos int, the last position, where getRouteLength()+1 gives the length of the tour
+	 * @return double, the distance from position 0 to pos
+	 */
+	public double getDistanceUpTo(int pos) {
+		return distanceUpTo[pos];
+	}
+
+	/**
+	 * Get the distance travelled between two positions in O(1)
+	 * @param from int, the position at which the segment starts
+	 * @param to int, the position at which the segment ends
+	 * @return double, the distance from position from to position to
+	 */
+	public double getDistanceBetween(int from, int to) {
+		return distanceUpTo[to] - distanceUpTo[from];
+	}
+
+	/**
+	 * Accessor for the number of customers on the tour (without the depot)
+	 * @return int, the length of the route
+	 */
+	public int getRouteLength() {
+		return length;
+	}
+
+	/**
+	 * Accessor for the route array, which must not be changed
+	 * @return int[], the indices of the customers at the positions 1 to getRouteLength(), enclosed by the depot
+	 */
+	public int[] getRoute() {
+		return route;
+	}
+
+	/**
+	 * Check if the tours of two vehicles are close to each other, i.e. the bounding boxes
+	 * of their customers overlap when enlarged by a margin. Empty tours are close to every tour.
+	 * @param other Vehicle, the vehicle to compare with
+	 * @param margin double, the distance by which the bounding boxes are enlarged
+	 * @return boolean, true if the tours are close to each other
+	 */
+	public boolean isNear(Vehicle other, double margin) {
+		if(isEmpty() || other.isEmpty()) {
+			return true;
+		}
+		this.updateBounds();
+		other.updateBounds();
+		return minX - margin <= other.maxX && other.minX - margin <= maxX
+				&& minY - margin <= other.maxY && other.minY - margin <= maxY;
+	}
+
+	/**
+	 * Recalculate the bounding box of the customers, if the tour was changed in a way that might shrink it
+	 */
+	private void updateBounds() {
+		if(boundsValid) {
+			return;
+		}
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+		int[] x = vrp.getInstance().getXCoords();
+		int[] y = vrp.getInstance().getYCoords();
+		for(int p = 1; p <= length; p++) {
+			int c = route[p];
+			minX = Math.min(minX, x[c]);
+			maxX = Math.max(maxX, x[c]);
+			minY = Math.min(minY, y[c]);
+			maxY = Math.max(maxY, y[c]);
+		}
+		boundsValid = true;
+	}
+
+	/**
+	 * Mark the bounding box as outdated, which is needed if the tour was changed without insertBetween or remove
+	 */
+	public void invalidateBounds() {
+		boundsValid = false;
+	}
+
+	/**
+	 * Accessor for the violation caused by the last insertion or removal, which is not repeated for later changes
+	 * @return int, the code of the violation (see Violation), or Violation.NONE
+	 */
+	public int getViolation() {
+		return violation;
+	}
+
+	/**
+	 * Check if the vehicle exceeds the number of vehicles given by the benchmark
+	 * @return boolean, true if the vehicle is virtual
+	 */
+	public boolean isVirtual() {
+		return costOfUse >= VRP.VIRTUAL_COST;
+	}
+
+	/**
+	 * Reset a vehicle that is empty or whose customers were moved to other vehicles, before it is reused
+	 */
+	public void recycle() {
+		index = -1;
+		load = 0;
+		distance = 0;
+		cost = 0;
+		length = 0;
+		route[1] = route[0];
+		updatePrefixSums(1);
+		updateHash();
+		firstCustomer.setSucc(lastCustomer);
+		lastCustomer.setPred(firstCustomer);
+		lastCustomer.setVehicle(this);
+		boundsValid = false;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Check if the vehicle serves no customer
+	 * @return boolean, true if the tour only consists of the depot
+	 */
+	public boolean isEmpty() {
+		return length == 0;
 	}
 
 	/**
@@ -185,6 +652,7 @@ public class Vehicle {
 	 */
 	public void setDistance(double distance) {
 		this.distance=distance;
+		version = vrp.nextVersion();
 	}
 
 	/**
@@ -233,6 +701,7 @@ public class Vehicle {
 	 */
 	public void setCapacity(int capacity) {
 		this.capacity = capacity;
+		version = vrp.nextVersion();
 	}
 
 	/**
@@ -249,6 +718,7 @@ public class Vehicle {
 	 */
 	public void setLoad(int load) {
 		this.load = load;
+		version = vrp.nextVersion();
 	}
 
 	/**
@@ -265,6 +735,7 @@ public class Vehicle {
 	 */
 	public void setCostOfUse(int costOfUse) {
 		this.costOfUse = costOfUse;
+		version = vrp.nextVersion();
 	}
 
 	/**
@@ -281,6 +752,7 @@ public class Vehicle {
 	 */
 	public void setCost(double cost) {
 		this.cost = cost;
+		version = vrp.nextVersion();
 	}
 
 	/**
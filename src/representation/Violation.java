@@ -0,0 +1,101 @@
+package representation;
+
+/**
+ * Codes for the violation of constraints, which are returned instead of throwing exceptions.
+ * A code packs the kind of the violation and the index of the customer at which it was detected into one int,
+ * so checking the constraints does not allocate anything. In strict mode, which can be switched on with the
+ * system property vrp.strict or setStrict, every reported violation fails fast with an IllegalStateException.
+ * @author Tom Decke
+ *
+ */
+public final class Violation {
+
+	/**code for no violation*/
+	public static final int NONE = 0;
+	/**kind of a violated time window, i.e. a customer whose earliest start comes after its latest start*/
+	public static final int TIME_WINDOW = 1;
+	/**kind of a vehicle that carries more than its capacity*/
+	public static final int CAPACITY = 2;
+
+	private static final int KIND_BITS = 2;
+	private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+	private static volatile boolean strict = Boolean.getBoolean("vrp.strict");
+
+	private Violation() {
+	}
+
+	/**
+	 * Create the code of a violation
+	 * @param kind int, TIME_WINDOW or CAPACITY
+	 * @param customer int, index of the customer at which the violation was detected
+	 * @return int, the code
+	 */
+	public static int of(int kind, int customer) {
+		return customer << KIND_BITS | kind;
+	}
+
+	/**
+	 * Extract the kind of a violation
+	 * @param code int, the code of the violation
+	 * @return int, NONE, TIME_WINDOW or CAPACITY
+	 */
+	public static int kind(int code) {
+		return code & KIND_MASK;
+	}
+
+	/**
+	 * Extract the customer of a violation
+	 * @param code int, the code of a violation other than NONE
+	 * @return int, index of the customer at which the violation was detected
+	 */
+	public static int customer(int code) {
+		return code >>> KIND_BITS;
+	}
+
+	/**
+	 * Pass on the code of a violation, which fails fast in strict mode
+	 * @param code int, the code of the violation or NONE
+	 * @return int, the code
+	 */
+	public static int report(int code) {
+		if(strict && code != NONE) {
+			throw new IllegalStateException(describe(code));
+		}
+		return code;
+	}
+
+	/**
+	 * Describe a violation, e.g. for debugging output
+	 * @param code int, the code of the violation
+	 * @return String, the description
+	 */
+	public static String describe(int code) {
+		switch(kind(code)) {
+		case NONE:
+			return "No violation";
+		case TIME_WINDOW:
+			return "Time window violated at customer " + customer(code);
+		case CAPACITY:
+			return "Capacity exceeded by customer " + customer(code);
+		default:
+			return "Unknown violation " + code;
+		}
+	}
+
+	/**
+	 * Switch strict mode on or off
+	 * @param on boolean, true to fail fast on every reported violation
+	 */
+	public static void setStrict(boolean on) {
+		strict = on;
+	}
+
+	/**
+	 * Check if strict mode is switched on
+	 * @return boolean, true if reported violations fail fast
+	 */
+	public static boolean isStrict() {
+		return strict;
+	}
+}
@@ -47,8 +47,7 @@ public abstract class Descent {
 	 */
 	public ArrayList<Vehicle> getVehicles(){
 		ArrayList<Vehicle> vehicles = new ArrayList<Vehicle>();
-		for(int i = 0 ; i<numCustomers; i++) {
-			Vehicle v = vrp.getVehicle()[i];
+		for(Vehicle v : vrp.getVehicle()) {
 			//check if there are still customers in between the dummies
 			if(!v.getFirstCustomer().getSucc().equals(v.getLastCustomer())) {
 				vehicles.add(v);
@@ -74,6 +73,32 @@ public abstract class Descent {
 		o.getOperation().executeOption(o);
 	}
 
+	/**
+	 * Keep the fleet compact after a move changed the tours of two vehicles,
+	 * i.e. return emptied virtual vehicles to the pool and provide a new spare if the old one was used.
+	 * The option matrices of the operators are adapted to the changes.
+	 * @param ops ArrayList<Operation>, the operators whose option matrices are to be adapted
+	 * @param v1 Vehicle, the first vehicle of the move
+	 * @param v2 Vehicle, the second vehicle of the move
+	 */
+	public void updateFleet(ArrayList<Operation> ops, Vehicle v1, Vehicle v2) {
+		Vehicle[] changed = v1 == v2 ? new Vehicle[] {v1} : new Vehicle[] {v1, v2};
+		for(Vehicle v : changed) {
+			int index = vrp.releaseVehicle(v);
+			if(index >= 0) {
+				for(Operation op : ops) {
+					op.removeVehicle(index);
+				}
+			}
+		}
+		Vehicle spare = vrp.ensureSpare();
+		if(spare != null) {
+			for(Operation op : ops) {
+				op.addVehicle(spare);
+			}
+		}
+	}
+
 	/**
 	 * Write the results to a text-file
 	 */
@@ -110,8 +135,7 @@ public abstract class Descent {
 	 */
 	public int getVehicleCount() {
 		int vehicleCount = 0; //number of vehicles needed in the solution
-		for(int i = 0 ; i<numCustomers; i++) {
-			Vehicle v = vrp.getVehicle()[i];
+		for(Vehicle v : vrp.getVehicle()) {
 			//check if there are still customers in between the dummies
 			if(!v.getFirstCustomer().getSucc().equals(v.getLastCustomer())) {
 				v.show();
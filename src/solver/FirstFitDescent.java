@@ -1,6 +1,7 @@
 package solver;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import moves.Option;
 import operators.Operation;
 import operators.TwoOptOperation;
@@ -27,8 +28,10 @@ public class FirstFitDescent extends Descent{
 	public FirstFitDescent(VRP vrp, String fOut) {
 		super(vrp,fOut);
 		cDesc = new ArrayList<Customer>();
-		vehicles = new Vehicle[vrp.getM()];
-		tOPt = new TwoOptOperation(vrp, super.numCustomers);
+		tOPt = new TwoOptOperation(vrp);
+
+		//remember the non-penalizing vehicles, which come first in the fleet
+		vehicles = Arrays.copyOf(vrp.getVehicle(), vrp.getM());
 
 		//iterate through vehicles and customers
 		for(int i = 0 ; i < vrp.getN() ; i++) {
@@ -37,10 +40,6 @@ public class FirstFitDescent extends Descent{
 
 			//clear the vehicles
 			vCur.remove(cCur);
-			//remember the non-penalizing vehicles
-			if(i < vrp.getM()) {
-				vehicles[i] = vCur;
-			}
 
 			double curStart = Math.max(cCur.getEarliestStart(), vrp.distance(vrp.getDepot(), cCur));
 			int pos = 0;
@@ -49,14 +48,19 @@ public class FirstFitDescent extends Descent{
 				pos++;
 			}
 			cDesc.add(pos, cCur);
-		}	
+		}
+
+		//the emptied virtual vehicles are not needed anymore
+		vrp.compactFleet();
 	}
 
 	/**
-	 * Run first fit descent to find a solution for the given VRP-instance
+	 * Run first fit descent to find a solution for the given VRP-instance.
+	 * Afterwards the propagation steps of the VRP show how far the insertions spread along the tours.
 	 */
 	public void solve(ArrayList<Operation> ops, boolean random) {
 		Customer cCur = null;
+		vrp.resetPropagationSteps();
 		while(!cDesc.isEmpty()) {
 			cCur = cDesc.remove(0);
 			placeCustomer(cCur);
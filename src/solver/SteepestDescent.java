@@ -81,9 +81,20 @@ public class SteepestDescent extends Descent{
 			v2.show();
 			System.out.println(" ");
 
+			//adapt the fleet, removed vehicles no longer have an index
+			updateFleet(operators, v1, v2);
+			if(v1.getIndex() < 0) {
+				v1 = v2;
+			}
+			if(v2.getIndex() < 0) {
+				v2 = v1;
+			}
+
 			//update the move matrices
-			for(Operation op : operators) {
-				op.updateOptionMatrix(v1, v2);
+			if(v1.getIndex() >= 0) {
+				for(Operation op : operators) {
+					op.updateOptionMatrix(v1, v2);
+				}
 			}
 
 			//get the next best move
@@ -143,10 +154,10 @@ public class SteepestDescent extends Descent{
 
 		ArrayList<Operation> ops = new ArrayList<Operation>();
 
-		RelocateOperation rlo = new RelocateOperation(vrp, num);
-		ExchangeOperation exo = new ExchangeOperation(vrp, num);
-		TwoOptOperation	  two = new TwoOptOperation(vrp, num);
-		CrossExOperation  ceo = new CrossExOperation(vrp, num);
+		RelocateOperation rlo = new RelocateOperation(vrp);
+		ExchangeOperation exo = new ExchangeOperation(vrp);
+		TwoOptOperation	  two = new TwoOptOperation(vrp);
+		CrossExOperation  ceo = new CrossExOperation(vrp);
 		ops.add(rlo);
 		ops.add(exo);
 		ops.add(two);